@@ -2,6 +2,7 @@ plugins {
     id("java")
 //    id("org.jetbrains.kotlin.jvm") version "2.1.0"
     id("org.jetbrains.intellij.platform") version "2.7.1"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "hsb.learn"
@@ -19,7 +20,8 @@ repositories {
 dependencies {
     intellijPlatform {
 //        create("IC", "2025.1.4.1")
-//        testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
+        // 回归测试在无头 IDE 容器中运行真实的服务
+        testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
 
         // Add necessary plugin dependencies for compilation here, example:
         // bundledPlugin("com.intellij.java")
@@ -27,6 +29,8 @@ dependencies {
         local("C:\\Users\\Administrator\\AppData\\Local\\Programs\\IntelliJ IDEA Ultimate")
     }
     implementation("com.google.code.gson:gson:2.10.1")
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("org.opentest4j:opentest4j:1.3.0")
 }
 
 intellijPlatform {
@@ -59,4 +63,23 @@ java {
     toolchain {
         languageVersion.set(JavaLanguageVersion.of(21))
     }
+}
+
+// JMH 基准测试：src/jmh/java，运行 ./gradlew jmh，结果输出为 JSON 便于对比
+// 被测方法只依赖 AWT 和 Gson，但类本身引用了 IntelliJ 平台类型，因此沿用主代码的编译类路径
+configurations {
+    named("jmhCompileClasspath") { extendsFrom(configurations.compileClasspath.get()) }
+    named("jmhRuntimeClasspath") { extendsFrom(configurations.compileClasspath.get()) }
+}
+
+jmh {
+    jmhVersion = "1.37"
+    // 模拟服务器和测试数据在 src/test/java，与回归测试共用
+    includeTests = true
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    jvmArgs = listOf("-Djava.awt.headless=true", "-Dfile.encoding=UTF-8")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
 }
\ No newline at end of file
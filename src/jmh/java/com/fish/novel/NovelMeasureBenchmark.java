@@ -0,0 +1,75 @@
+package com.fish.novel;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分页与测量热路径：单行前向测量（下翻/绘制）、倒序测量（上翻）、整章行表计算
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NovelMeasureBenchmark {
+
+    @Param({"2000", "2000000"})
+    public int chapterChars;
+
+    private String content;
+    private FontMetrics metrics;
+    private Font font;
+    private int[] positions;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        content = NovelBenchmarkFixtures.chapter(chapterChars);
+        metrics = NovelBenchmarkFixtures.metrics();
+        font = NovelBenchmarkFixtures.font();
+        // 固定的一组滚动位置，避免每次都测同一行
+        positions = new int[1024];
+        for (int i = 0; i < positions.length; i++) positions[i] = (int) ((long) i * (content.length() - 1) / positions.length);
+    }
+
+    private int nextPosition() {
+        cursor = (cursor + 1) & (positions.length - 1);
+        return positions[cursor];
+    }
+
+    @Benchmark
+    public int fittingCountForward() {
+        int from = nextPosition();
+        return NovelInlayRenderer.calculateFittingCount(content, from, content.length(), metrics, NovelBenchmarkFixtures.WIDTH);
+    }
+
+    @Benchmark
+    public int fittingCountBackward() {
+        int end = nextPosition() + 1;
+        return NovelInlayRenderer.calculateFittingCountBackward(content, end, metrics, NovelBenchmarkFixtures.WIDTH, 101);
+    }
+
+    /**
+     * 对照组：不经过字宽缓存，直接调用 FontMetrics.charWidth
+     */
+    @Benchmark
+    public int fittingCountUncached() {
+        int from = nextPosition();
+        int width = 0;
+        int count = 0;
+        for (int i = from; i < content.length(); i++) {
+            int w = metrics.charWidth(content.charAt(i));
+            if (width + w > NovelBenchmarkFixtures.WIDTH) break;
+            width += w;
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void lineLayout(Blackhole bh) {
+        bh.consume(NovelLineLayout.compute(content, font, font, metrics, NovelBenchmarkFixtures.WIDTH));
+    }
+}
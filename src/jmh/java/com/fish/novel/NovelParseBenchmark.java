@@ -0,0 +1,58 @@
+package com.fish.novel;
+
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应解析热路径：书架 (parseDataList)、章节正文 (extractContent)、章节目录 (流式解析)、正文规范化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NovelParseBenchmark {
+
+    @Param({"1000", "8000"})
+    public int chapters;
+
+    private String bookshelfJson;
+    private String contentJson;
+    private String content;
+    private byte[] chapterListBytes;
+
+    @Setup
+    public void setup() {
+        bookshelfJson = NovelBenchmarkFixtures.bookshelfJson(200);
+        content = NovelBenchmarkFixtures.chapter(20_000);
+        contentJson = NovelBenchmarkFixtures.contentJson(content);
+        chapterListBytes = NovelBenchmarkFixtures.chapterListJson(chapters).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<LegadoUtil.Book> bookshelf() {
+        return LegadoUtil.parseDataList(bookshelfJson, LegadoUtil.Book.class);
+    }
+
+    @Benchmark
+    public LegadoUtil.ParsedContent bookContent() {
+        return LegadoUtil.extractContent(contentJson);
+    }
+
+    @Benchmark
+    public NovelChapterText normalize() {
+        return NovelChapterText.of(content);
+    }
+
+    @Benchmark
+    public NovelChapterTable chapterList() throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(chapterListBytes), StandardCharsets.UTF_8))) {
+            return NovelChapterTable.parse(reader);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.fish.novel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端网络路径：对 {@link FakeLegadoServer} 按阅读滚动序列切换章节，
+ * 每次调用测一次"切到下一章直到正文可用"的耗时。
+ * SampleTime 模式直接给出 p50 / p99，辅助计数器给出每次切章实际发出的请求数和失败重试数。
+ * <p>
+ * 只测 LegadoUtil 的 HTTP、解压和解析开销，预读用一个最简单的窗口代替；
+ * NovelGlobalService 本身（代次取消、复用预读、窗口淘汰、执行通道）依赖 IDE 容器，
+ * 由 NovelScrollRegressionTest 在测试框架中驱动真实服务覆盖
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NovelScrollBenchmark {
+
+    @Param({"20"})
+    public long latencyMs;
+
+    @Param({"10"})
+    public long jitterMs;
+
+    @Param({"0.0", "0.05"})
+    public double failureRate;
+
+    // 0 = 关闭预读，对照组
+    @Param({"0", "2"})
+    public int prefetchAhead;
+
+    // 对照压缩传输的效果，bytes 计数器给出每次切章实际传输的字节
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    // 每章的滚动步数，模拟阅读一章所用的时间（按固定延迟的倍数计）
+    @Param({"3"})
+    public int readSteps;
+
+    private static final int PREFETCH_BEHIND = 1;
+    private static final int MAX_RETRIES = 3;
+
+    private FakeLegadoServer server;
+    private LegadoUtil.Book book;
+    private int chapters;
+
+    private final Map<Integer, CompletableFuture<Optional<LegadoUtil.ParsedContent>>> prefetching = new HashMap<>();
+    private int current;
+    private long lastRequests;
+    private long lastBytes;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long requests;
+        public long retries;
+        public long prefetchHits;
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = FakeLegadoServer.start(new FakeLegadoServer.Options(500, 6000, latencyMs, jitterMs, failureRate, gzip));
+        System.setProperty("novel.legado.url", server.baseUrl());
+        book = server.book();
+        // 打开书时的冷启动请求不计入切章
+        chapters = LegadoUtil.getChapterList(book).size();
+        if (chapters == 0) throw new IllegalStateException("模拟服务器返回了空目录: " + server.baseUrl());
+    }
+
+    @Setup(Level.Iteration)
+    public void resetIteration() {
+        prefetching.values().forEach(f -> f.cancel(true));
+        prefetching.clear();
+        current = 0;
+        lastRequests = server.requestCount("/getBookContent");
+        lastBytes = server.bytesSent();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        prefetching.values().forEach(f -> f.cancel(true));
+        System.clearProperty("novel.legado.url");
+        server.close();
+    }
+
+    @Benchmark
+    public String chapterSwitch(Counters counters) throws InterruptedException {
+        // 阅读当前章，期间预读在后台进行
+        if (readSteps > 0 && latencyMs > 0) Thread.sleep(readSteps * latencyMs);
+
+        current = (current + 1) % chapters;
+        CompletableFuture<Optional<LegadoUtil.ParsedContent>> load = prefetching.remove(current);
+        if (load != null && load.isDone()) counters.prefetchHits++;
+        if (load == null) load = LegadoUtil.fetchBookContentAsync(book, current);
+
+        Optional<LegadoUtil.ParsedContent> content = load.join();
+        // 失败时服务显示错误，用户再次滚动即重试
+        for (int i = 0; i < MAX_RETRIES && (content.isEmpty() || !content.get().success()); i++) {
+            counters.retries++;
+            content = LegadoUtil.fetchBookContentAsync(book, current).join();
+        }
+        prefetchAround();
+
+        long requests = server.requestCount("/getBookContent");
+        counters.requests += requests - lastRequests;
+        lastRequests = requests;
+        long bytes = server.bytesSent();
+        counters.bytes += bytes - lastBytes;
+        lastBytes = bytes;
+        return content.map(LegadoUtil.ParsedContent::content).orElse("");
+    }
+
+    private void prefetchAround() {
+        Iterator<Map.Entry<Integer, CompletableFuture<Optional<LegadoUtil.ParsedContent>>>> it = prefetching.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<Optional<LegadoUtil.ParsedContent>>> entry = it.next();
+            int index = entry.getKey();
+            if (index < current - PREFETCH_BEHIND || index > current + prefetchAhead) {
+                entry.getValue().cancel(true);
+                it.remove();
+            }
+        }
+        for (int d = 1; d <= prefetchAhead; d++) {
+            int index = current + d;
+            if (index < chapters) prefetching.computeIfAbsent(index, i -> LegadoUtil.fetchBookContentAsync(book, i));
+        }
+    }
+}
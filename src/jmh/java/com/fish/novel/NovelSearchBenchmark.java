@@ -0,0 +1,66 @@
+package com.fish.novel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全文搜索：在 {@link NovelBenchmarkFixtures#searchChapter} 合成的整本书上，
+ * 按 {@link NovelGlobalService#search} 的方式查询（求候选、原文确认、规范化、确认位置）。
+ * 候选章节的原文从内存数组取，不含磁盘读取和解压；缓存命中的章节不计入，相当于全部走磁盘路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NovelSearchBenchmark {
+
+    @Param({"3000"})
+    public int chapters;
+
+    @Param({"6000"})
+    public int chapterChars;
+
+    // 稀有词（每 100 章一次）、常见词（每章都有，读满 limit 即停）、各字都有但从不相邻的词
+    @Param({"青铜古剑", "净化", "任务净化"})
+    public String query;
+
+    @Param({"100"})
+    public int limit;
+
+    private NovelSearchIndex index;
+    private NovelSearchIndex.Chapters book;
+
+    @Setup
+    public void setup() {
+        String[] raw = new String[chapters];
+        index = new NovelSearchIndex();
+        for (int i = 0; i < chapters; i++) {
+            raw[i] = NovelBenchmarkFixtures.searchChapter(i, chapterChars);
+            index.add(i, NovelChapterText.of(raw[i]));
+        }
+        String q = query;
+        book = new NovelSearchIndex.Chapters() {
+            @Override
+            public String title(int chapterIndex) {
+                return "第" + (chapterIndex + 1) + "章";
+            }
+
+            @Override
+            public NovelChapterText text(int chapterIndex) {
+                if (!NovelSearchIndex.mayContain(raw[chapterIndex], q)) return null;
+                return NovelChapterText.of(raw[chapterIndex]);
+            }
+        };
+    }
+
+    @Benchmark
+    public List<NovelSearchIndex.Hit> search() {
+        return index.search(query, limit, book);
+    }
+
+    @Benchmark
+    public int[] candidates() {
+        return index.candidates(query);
+    }
+}
@@ -4,7 +4,9 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 
+import java.io.*;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -13,108 +15,330 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class LegadoUtil {
 
+    // Legado 内置服务只支持 HTTP/1.1：固定版本省去每个新连接上的 h2c 升级尝试，
+    // 所有请求共用这一个 client，空闲的 keep-alive 连接在超时前都会被复用
     private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
             .connectTimeout(Duration.ofSeconds(5))
             .build();
     private static final Gson gson = new Gson();
+    // 单个请求的超时：书架、正文、进度；章节目录较大，单独放宽
+    private static final Duration SHORT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration LONG_TIMEOUT = Duration.ofSeconds(30);
 
     private static String getBaseUrl() {
-        String url = NovelConfig.getInstance().legadoUrl;
+        return toBaseUrl(NovelConfig.effectiveLegadoUrl());
+    }
+
+    private static String toBaseUrl(String url) {
         if (!url.startsWith("http")) return "http://" + url;
         return url;
     }
 
     public record Book(String name, String author, String bookUrl, String coverUrl,
-                       int durChapterIndex, int durChapterPos, long durChapterTime, int totalChapterNum) {}
-
-    public record Chapter(String title, int index, String url) {}
+                       int durChapterIndex, int durChapterPos, long durChapterTime, int totalChapterNum,
+                       String latestChapterTitle) {}
 
     public record ChapterContent(String title, String content, int index) {}
 
-    public static Optional<Book> findBookByName(String name) {
-        if (name == null || name.isEmpty()) return Optional.empty();
-        String json = sendRequest("/getBookshelf");
-        List<Book> books = parseDataList(json, Book.class);
-        return books.stream()
-                .filter(b -> b.name() != null && b.name().contains(name))
-                .findFirst();
+    // ================= 同步接口（后台线程使用） =================
+
+    public static NovelChapterTable getChapterList(Book book) {
+        return getChapterListAsync(book).join();
     }
 
-    public static List<Chapter> getChapterList(Book book) {
-        String encodedUrl = encode(book.bookUrl());
-        String json = sendRequest("/getChapterList?url=" + encodedUrl);
-        return parseDataList(json, Chapter.class);
+    // ================= 异步接口 =================
+    // 失败统一以空结果完成而不是异常；cancel() 返回的 future 会中断底层 HTTP 请求
+
+    /**
+     * 整个书架；查找书籍请使用 {@link NovelBookshelf} 的内存缓存
+     */
+    public static CompletableFuture<List<Book>> getBookshelfAsync() {
+        return getBookshelfAsync(getBaseUrl());
     }
 
-    public static Optional<ChapterContent> getBookContent(Book book, int index) {
+    /**
+     * 指定地址的书架：缓存按地址区分，请求必须发往缓存记录的那个地址
+     */
+    public static CompletableFuture<List<Book>> getBookshelfAsync(String legadoUrl) {
+        return sendRequestAsync(toBaseUrl(legadoUrl), "/getBookshelf", SHORT_TIMEOUT,
+                reader -> parseDataList(reader, Book.class), Collections.emptyList());
+    }
+
+    /**
+     * 章节目录可能有上万条，直接从响应流解析进紧凑表，不经过 String / Json 树
+     */
+    public static CompletableFuture<NovelChapterTable> getChapterListAsync(Book book) {
         String encodedUrl = encode(book.bookUrl());
-        String url = "/getBookContent?url=%s&index=%d".formatted(encodedUrl, index);
-        String json = sendRequest(url);
+        return sendRequestAsync("/getChapterList?url=" + encodedUrl, LONG_TIMEOUT,
+                reader -> NovelChapterTable.parse(new JsonReader(reader)), NovelChapterTable.EMPTY);
+    }
 
-        if (json == null) return Optional.empty();
-        try {
-            JsonObject root = gson.fromJson(json, JsonObject.class);
-            JsonElement target = root.has("data") ? root.get("data") : root;
-
-            String contentStr;
-            if (target.isJsonPrimitive()) {
-                contentStr = target.getAsString();
-            } else if (target.isJsonObject() && target.getAsJsonObject().has("content")) {
-                contentStr = target.getAsJsonObject().get("content").getAsString();
-            } else {
-                contentStr = target.toString(); // Fallback
-            }
-            return Optional.of(new ChapterContent(null, contentStr, index));
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Optional.empty();
+    /**
+     * 章节正文：读缓存、请求、解析、写缓存都在 executor 的线程上同步完成，
+     * 网络并发因此受执行通道的线程数限制，预读再多也只占预读通道的那几个连接；
+     * cancel() 中断该线程，进行中的请求随之放弃
+     */
+    public static CompletableFuture<Optional<ChapterContent>> getBookContentAsync(Book book, int index, Executor executor) {
+        return supplyInterruptibly(executor, Optional.empty(), () -> {
+            // 先查本地缓存，命中则不走网络
+            NovelChapterStore store = NovelChapterStore.getInstance();
+            Optional<String> cached = store.get(book.bookUrl(), index);
+            NovelMetrics.hit(NovelMetrics.Ratio.DISK_CACHE, cached.isPresent());
+            if (cached.isPresent()) return Optional.of(new ChapterContent(null, cached.get(), index));
+
+            Optional<ParsedContent> parsed = sendRequest(getBaseUrl(), bookContentPath(book, index), SHORT_TIMEOUT,
+                    reader -> Optional.of(extractContent(reader)), Optional.empty());
+            if (parsed.isEmpty()) return Optional.empty();
+            if (parsed.get().cacheable()) store.put(book.bookUrl(), index, parsed.get().content());
+            return Optional.of(new ChapterContent(null, parsed.get().content(), index));
+        });
+    }
+
+    /**
+     * 只走网络、不读写本地缓存，不依赖 IDE 环境（供模拟服务器的端到端基准直接调用）
+     */
+    static CompletableFuture<Optional<ParsedContent>> fetchBookContentAsync(Book book, int index) {
+        return sendRequestAsync(bookContentPath(book, index), SHORT_TIMEOUT,
+                reader -> Optional.of(extractContent(reader)), Optional.empty());
+    }
+
+    private static String bookContentPath(Book book, int index) {
+        return "/getBookContent?url=%s&index=%d".formatted(encode(book.bookUrl()), index);
+    }
+
+    /**
+     * success 为服务器返回的 isSuccess；recognized 为 false 表示响应格式无法识别，content 是原始 JSON。
+     * 与拆分前一致：两种情况都照常显示，只有服务器成功且格式可识别的正文才写入缓存
+     */
+    record ParsedContent(String content, boolean success, boolean recognized) {
+
+        boolean cacheable() {
+            return success && recognized;
+        }
+    }
+
+    /**
+     * 从 /getBookContent 响应中取出正文，不依赖 IDE 环境（供基准测试直接调用）
+     */
+    static ParsedContent extractContent(String json) {
+        return extractContent(new StringReader(json));
+    }
+
+    private static ParsedContent extractContent(Reader json) {
+        JsonObject root = gson.fromJson(json, JsonObject.class);
+        JsonElement target = root.has("data") ? root.get("data") : root;
+        boolean success = !root.has("isSuccess") || root.get("isSuccess").getAsBoolean();
+
+        if (target.isJsonPrimitive()) {
+            return new ParsedContent(target.getAsString(), success, true);
+        } else if (target.isJsonObject() && target.getAsJsonObject().has("content")) {
+            return new ParsedContent(target.getAsJsonObject().get("content").getAsString(), success, true);
         }
+        return new ParsedContent(target.toString(), success, false); // Fallback
     }
 
-    public static boolean saveProgress(Book book, int durChapterIndex, int durChapterPos, String durChapterTitle) {
+    public static CompletableFuture<Boolean> saveProgressAsync(Book book, int durChapterIndex, int durChapterPos,
+                                                               String durChapterTitle, long durChapterTime) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("name", book.name());
+        payload.put("author", book.author());
+        payload.put("durChapterIndex", durChapterIndex);
+        payload.put("durChapterPos", durChapterPos);
+        payload.put("durChapterTitle", durChapterTitle);
+        payload.put("durChapterTime", durChapterTime);
+        payload.put("url", book.bookUrl());
+
+        byte[] jsonBody = gson.toJson(payload).getBytes(StandardCharsets.UTF_8);
+        NovelMetrics.sent(jsonBody.length);
+        long started = NovelMetrics.start();
         try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("name", book.name());
-            payload.put("author", book.author());
-            payload.put("durChapterIndex", durChapterIndex);
-            payload.put("durChapterPos", durChapterPos);
-            payload.put("durChapterTitle", durChapterTitle);
-            payload.put("durChapterTime", System.currentTimeMillis());
-            payload.put("url", book.bookUrl());
-
-            String jsonBody = gson.toJson(payload);
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(getBaseUrl() + "/saveBookProgress"))
+                    .timeout(SHORT_TIMEOUT)
                     .header("Content-Type", "application/json; charset=utf-8")
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody))
                     .build();
+            return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, e) -> {
+                        NovelMetrics.transfer("/saveBookProgress", 0, 0, started);
+                        return e == null && response.statusCode() == 200;
+                    });
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
 
-            client.send(request, HttpResponse.BodyHandlers.ofString());
-            return true;
+    /**
+     * 发送 GET 请求并在响应线程上边读边转换；非 200、超时、解析失败都以 fallback 完成。
+     * 声明接受 gzip/deflate，响应按 Content-Encoding 透明解压后以 UTF-8 Reader 交给 parser
+     */
+    private static <T> CompletableFuture<T> sendRequestAsync(String path, Duration timeout,
+                                                             ResponseParser<T> parser, T fallback) {
+        return sendRequestAsync(getBaseUrl(), path, timeout, parser, fallback);
+    }
+
+    private static <T> CompletableFuture<T> sendRequestAsync(String baseUrl, String path, Duration timeout,
+                                                             ResponseParser<T> parser, T fallback) {
+        NovelEvents.Request event = new NovelEvents.Request();
+        event.begin();
+        long started = NovelMetrics.start();
+        CompletableFuture<HttpResponse<InputStream>> response;
+        try {
+            response = client.sendAsync(newGet(baseUrl, path, timeout), HttpResponse.BodyHandlers.ofInputStream());
         } catch (Exception e) {
-            return false;
+            return CompletableFuture.completedFuture(fallback);
         }
+
+        CompletableFuture<T> result = response.handle((r, e) -> readResponse(path, r, e, parser, fallback, event, started));
+        // 依赖 future 被取消时，向上取消 HTTP 请求
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) response.cancel(true);
+        });
+        return result;
     }
 
-    private static String sendRequest(String path) {
+    /**
+     * 同步版本：在调用线程上发送并解析，供执行通道内使用；线程被中断时放弃请求并以 fallback 返回
+     */
+    private static <T> T sendRequest(String baseUrl, String path, Duration timeout, ResponseParser<T> parser, T fallback) {
+        NovelEvents.Request event = new NovelEvents.Request();
+        event.begin();
+        long started = NovelMetrics.start();
+        HttpResponse<InputStream> response = null;
+        Exception error = null;
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(getBaseUrl() + path))
-                    .header("User-Agent", "LegadoJavaClient")
-                    .GET()
-                    .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200 ? response.body() : null;
+            response = client.send(newGet(baseUrl, path, timeout), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = e;
         } catch (Exception e) {
-            return null;
+            error = e;
+        }
+        return readResponse(path, response, error, parser, fallback, event, started);
+    }
+
+    private static HttpRequest newGet(String baseUrl, String path, Duration timeout) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("User-Agent", "LegadoJavaClient")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET()
+                .build();
+    }
+
+    /**
+     * 边读边转换响应体并记录指标；异步版本在响应线程上调用，同步版本在调用线程上调用
+     */
+    private static <T> T readResponse(String path, HttpResponse<InputStream> r, Throwable e, ResponseParser<T> parser,
+                                      T fallback, NovelEvents.Request event, long started) {
+        ResponseBody body = null;
+        String encoding = null;
+        try {
+            if (e != null) return fallback;
+            encoding = r.headers().firstValue("Content-Encoding").orElse("identity");
+            body = new ResponseBody(r.body(), encoding);
+            if (r.statusCode() != 200) return fallback;
+            return parse(path, parser, body.reader());
+        } catch (Exception ex) {
+            return fallback;
+        } finally {
+            long wire = 0, decoded = 0;
+            if (body != null) {
+                body.close();
+                wire = body.wireBytes();
+                decoded = body.decodedBytes();
+            }
+            NovelMetrics.received(wire);
+            NovelMetrics.transfer(endpoint(path), wire, decoded, started);
+            NovelMetrics.stop(NovelMetrics.Timer.REQUEST, started);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = endpoint(path);
+                if (r != null) event.status = r.statusCode();
+                event.encoding = encoding;
+                event.bytes = wire;
+                event.decodedBytes = decoded;
+                event.commit();
+            }
         }
     }
 
-    private static <T> List<T> parseDataList(String json, Class<T> clazz) {
+    /**
+     * 在 executor 上执行可阻塞的 task；返回的 future 被取消时中断正在执行它的线程。
+     * 中断与任务结束在同一把锁下进行，中断标记不会泄漏到该线程执行的下一个任务
+     */
+    private static <T> CompletableFuture<T> supplyInterruptibly(Executor executor, T fallback, Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Thread[] running = new Thread[1];
+        result.whenComplete((r, e) -> {
+            if (!result.isCancelled()) return;
+            synchronized (running) {
+                if (running[0] != null) running[0].interrupt();
+            }
+        });
+        try {
+            executor.execute(() -> {
+                synchronized (running) {
+                    if (result.isDone()) return;
+                    running[0] = Thread.currentThread();
+                }
+                T value = fallback;
+                try {
+                    value = task.get();
+                } catch (Exception ignored) {
+                } finally {
+                    synchronized (running) {
+                        running[0] = null;
+                        Thread.interrupted();
+                    }
+                }
+                result.complete(value);
+            });
+        } catch (RejectedExecutionException e) {
+            result.complete(fallback);
+        }
+        return result;
+    }
+
+    private static <T> T parse(String path, ResponseParser<T> parser, Reader body) throws Exception {
+        NovelEvents.Parse event = new NovelEvents.Parse();
+        event.begin();
+        long started = NovelMetrics.start();
+        try {
+            return parser.parse(body);
+        } finally {
+            NovelMetrics.stop(NovelMetrics.Timer.PARSE, started);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = endpoint(path);
+                event.commit();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        T parse(Reader body) throws Exception;
+    }
+
+    static <T> List<T> parseDataList(String json, Class<T> clazz) {
         if (json == null || json.isEmpty()) return Collections.emptyList();
+        return parseDataList(new StringReader(json), clazz);
+    }
+
+    private static <T> List<T> parseDataList(Reader json, Class<T> clazz) {
         try {
             JsonElement root = gson.fromJson(json, JsonElement.class);
             JsonElement array = root.isJsonObject() && root.getAsJsonObject().has("data")
@@ -127,6 +351,117 @@ public class LegadoUtil {
         return Collections.emptyList();
     }
 
+    /**
+     * 响应体：按 Content-Encoding 透明解压，分别统计线路上的字节（压缩后）和解压后的字节。
+     * 关闭时先读完剩余的少量字节，连接才能回到 keep-alive 连接池；未读完就关闭会断开连接
+     */
+    private static final class ResponseBody {
+        private static final int BUFFER = 8192;
+        private static final long MAX_DRAIN = 64 * 1024;
+
+        private final CountingStream wire;
+        private final CountingStream decoded;
+
+        ResponseBody(InputStream raw, String encoding) throws IOException {
+            this.wire = new CountingStream(raw);
+            InputStream in;
+            try {
+                in = switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+                    case "gzip", "x-gzip" -> new GZIPInputStream(wire, BUFFER);
+                    case "deflate" -> inflate(wire);
+                    default -> wire; // identity
+                };
+            } catch (IOException e) {
+                // 非 200 的空响应体也可能带编码头，解压头读不出来时按原样处理
+                in = wire;
+            }
+            this.decoded = new CountingStream(in);
+        }
+
+        /**
+         * 按规范 deflate 是 zlib 格式，但不少服务器直接发裸 deflate 流，用头两个字节区分
+         */
+        private static InputStream inflate(InputStream in) throws IOException {
+            PushbackInputStream pushback = new PushbackInputStream(in, 2);
+            byte[] head = pushback.readNBytes(2);
+            pushback.unread(head);
+            boolean zlib = head.length == 2 && (head[0] & 0x0F) == 8
+                    && (((head[0] & 0xFF) << 8) | (head[1] & 0xFF)) % 31 == 0;
+            Inflater inflater = new Inflater(!zlib);
+            return new InflaterInputStream(pushback, inflater, BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end(); // 自带的 Inflater 不会随流关闭而释放本地内存
+                    }
+                }
+            };
+        }
+
+        Reader reader() {
+            return new InputStreamReader(decoded, StandardCharsets.UTF_8);
+        }
+
+        long wireBytes() { return wire.count; }
+
+        long decodedBytes() { return decoded.count; }
+
+        void close() {
+            try {
+                byte[] buf = new byte[BUFFER];
+                long drained = 0;
+                int n;
+                while (drained < MAX_DRAIN && (n = wire.read(buf)) > 0) drained += n;
+            } catch (IOException ignored) {
+            } finally {
+                try {
+                    decoded.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private static final class CountingStream extends FilterInputStream {
+        long count;
+
+        CountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false; // reset 会让计数重复
+        }
+    }
+
+    private static String endpoint(String path) {
+        int query = path.indexOf('?');
+        return query < 0 ? path : path.substring(0, query);
+    }
+
     private static String encode(String value) {
         return value == null ? "" : URLEncoder.encode(value, StandardCharsets.UTF_8);
     }
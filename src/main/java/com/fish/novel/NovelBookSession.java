@@ -0,0 +1,45 @@
+package com.fish.novel;
+
+import java.util.Map;
+
+/**
+ * 一本书的阅读现场：目录、已加载的章节正文、搜索索引和阅读位置。
+ * 切换书籍时由 {@link NovelGlobalService} 保存，切回来时直接恢复，不再走网络
+ */
+public final class NovelBookSession {
+
+    final LegadoUtil.Book book;
+    final NovelChapterTable chapters;
+    final Map<Integer, NovelChapterText> chapterCache;
+    final NovelSearchIndex searchIndex;
+    final NovelChapterText text;
+    final int chapterIndex;
+    final int textIndex;
+    final int readingDirection;
+
+    NovelBookSession(LegadoUtil.Book book, NovelChapterTable chapters, Map<Integer, NovelChapterText> chapterCache,
+                     NovelSearchIndex searchIndex, NovelChapterText text, int chapterIndex, int textIndex, int readingDirection) {
+        this.book = book;
+        this.chapters = chapters;
+        this.chapterCache = chapterCache;
+        this.searchIndex = searchIndex;
+        this.text = text;
+        this.chapterIndex = chapterIndex;
+        this.textIndex = textIndex;
+        this.readingDirection = readingDirection;
+    }
+
+    public LegadoUtil.Book book() { return book; }
+
+    /**
+     * 粗略估算占用的堆内存（按 UTF-16 字符计）
+     */
+    long estimateBytes() {
+        long bytes = chapters.estimateBytes() + text.estimateBytes() + searchIndex.estimateBytes();
+        for (NovelChapterText cached : chapterCache.values()) {
+            // 当前章节一般也在 chapterCache 中，与 text 是同一个对象
+            if (cached != text) bytes += cached.estimateBytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,72 @@
+package com.fish.novel;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 书源：{@link NovelGlobalService} 只通过该接口查找书籍、获取目录和正文。
+ * 目前有 Legado Web 服务和本地 TXT 文件两种实现，由配置的书名决定使用哪个
+ */
+public interface NovelBookSource {
+
+    /**
+     * 按配置中的书名查找书籍，在后台线程调用，可以阻塞
+     */
+    Optional<LegadoUtil.Book> find(String name);
+
+    /**
+     * 打开书籍后在后台取这本书在书源中的最新信息（进度、章节数），由调用方与打开时的信息比较；
+     * 没有远端信息的书源返回空
+     */
+    default CompletableFuture<Optional<LegadoUtil.Book>> latest(LegadoUtil.Book book) {
+        return CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    /**
+     * 打开书籍时的目录，在后台线程调用，可以阻塞；
+     * 目录可以只是已建立的一部分，之后通过 {@link #latestChapters} 取更新
+     */
+    NovelChapterTable loadChapters(LegadoUtil.Book book);
+
+    /**
+     * 目录仍在后台建立时返回最新的快照，已完整时返回 known；可能在 EDT 上调用，不能阻塞
+     */
+    default NovelChapterTable latestChapters(LegadoUtil.Book book, NovelChapterTable known) {
+        return known;
+    }
+
+    /**
+     * 章节正文，失败以空结果完成；cancel() 应中断底层读取或请求。
+     * 磁盘读取、解码等阻塞部分在 executor 上执行，由调用方决定走前台还是预读通道
+     */
+    CompletableFuture<Optional<LegadoUtil.ChapterContent>> loadContent(LegadoUtil.Book book, int index, Executor executor);
+
+    /**
+     * 不经网络即可取得的章节原文（本地缓存或本地文件），供搜索时读取候选章节；
+     * 在后台线程调用，可以阻塞
+     */
+    Optional<String> localContent(LegadoUtil.Book book, int index);
+
+    /**
+     * 已缓存的章节原文，供后台建立搜索索引时逐章遍历，默认与 {@link #localContent} 相同；
+     * 读取代价与整本书大小相关的书源（本地 TXT 要从文件解码）应只返回已有的结果
+     */
+    default Optional<String> cachedContent(LegadoUtil.Book book, int index) {
+        return localContent(book, index);
+    }
+
+    /**
+     * 配置中的书名是本地 TXT 路径时使用本地源，否则使用 Legado
+     */
+    static NovelBookSource forName(String name) {
+        return NovelLocalTxtSource.accepts(name) ? NovelLocalTxtSource.getInstance() : NovelLegadoSource.INSTANCE;
+    }
+
+    /**
+     * 恢复会话时按书籍来源选择
+     */
+    static NovelBookSource forBook(LegadoUtil.Book book) {
+        return NovelLocalTxtSource.isLocal(book.bookUrl()) ? NovelLocalTxtSource.getInstance() : NovelLegadoSource.INSTANCE;
+    }
+}
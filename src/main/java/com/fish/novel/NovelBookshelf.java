@@ -0,0 +1,259 @@
+package com.fish.novel;
+
+import com.google.gson.Gson;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ComponentManager;
+import com.intellij.openapi.components.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 书架缓存：内存中保存 /getBookshelf 的结果并建立书名二元组(bigram)索引，
+ * 书籍选择器的模糊搜索不走网络；超过有效期后在后台刷新，期间继续使用旧数据。
+ * 快照同时写入 IDE system 目录，离线启动时也能找到书。
+ * 打开书籍时 {@link #find} 只在没有快照或快照过期时等待刷新，进度和目录由 {@link #latest} 在后台确认
+ */
+@Service(Service.Level.APP)
+public final class NovelBookshelf {
+
+    private static final long TTL_MS = TimeUnit.MINUTES.toMillis(1);
+    // 刚刷新过的快照足够新，后台确认时不再重复请求
+    private static final long FRESH_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final String CACHE_FILE = "bookshelf.json";
+
+    /**
+     * 一次书架快照及其索引，整体替换，读取无需加锁
+     */
+    private record Snapshot(String sourceUrl, List<LegadoUtil.Book> books, String[] keys,
+                            Map<Integer, int[]> bigrams, long fetchedAt) {}
+
+    /**
+     * 进行中的刷新及其请求的地址，地址改变后不再复用
+     */
+    private record Refresh(String sourceUrl, CompletableFuture<Void> future) {}
+
+    /**
+     * 写入磁盘的书架，重启后重新建立索引；fetchedAt 照旧保存，重启后仍按过期处理
+     */
+    private record Saved(String sourceUrl, long fetchedAt, List<LegadoUtil.Book> books) {}
+
+    private static final Gson gson = new Gson();
+
+    private final Path file;
+    private volatile Snapshot snapshot;
+    private volatile Refresh refreshing;
+
+    public static NovelBookshelf getInstance() {
+        return ((ComponentManager)ApplicationManager.getApplication()).getService(NovelBookshelf.class);
+    }
+
+    public NovelBookshelf() {
+        this.file = Paths.get(PathManager.getSystemPath(), "kan-book", CACHE_FILE);
+        load();
+    }
+
+    /**
+     * 按书名查找：优先完全相同，其次包含，最后取模糊匹配得分最高的一本。
+     * 有效期内直接使用内存中的快照；没有快照或已过期时才等待一次刷新，刷新失败（离线）时退回旧快照。
+     * 快照中的进度和目录信息可能落后手机端，打开后由调用方通过 {@link #latest} 在后台确认。在后台线程调用
+     */
+    public Optional<LegadoUtil.Book> find(String name) {
+        if (name == null || name.isEmpty()) return Optional.empty();
+        String url = NovelConfig.effectiveLegadoUrl();
+        Snapshot s = snapshot;
+        if (!isUsable(s, url) || System.currentTimeMillis() - s.fetchedAt() > TTL_MS) {
+            refresh(url).join();
+            s = snapshot;
+            if (!isUsable(s, url)) return Optional.empty();
+        }
+        List<LegadoUtil.Book> ranked = search(s, name, 1);
+        return ranked.isEmpty() ? Optional.empty() : Optional.of(ranked.get(0));
+    }
+
+    /**
+     * 书架中这本书的最新信息（手机端进度、章节数）：快照刚刷新过时直接使用，否则先刷新一次；
+     * 刷新失败或书已不在书架中时返回快照中的信息或空
+     */
+    public CompletableFuture<Optional<LegadoUtil.Book>> latest(LegadoUtil.Book book) {
+        String url = NovelConfig.effectiveLegadoUrl();
+        Snapshot s = snapshot;
+        CompletableFuture<Void> refreshed = isUsable(s, url) && System.currentTimeMillis() - s.fetchedAt() < FRESH_MS
+                ? CompletableFuture.completedFuture(null)
+                : refresh(url);
+        return refreshed.thenApply(ignored -> {
+            Snapshot cur = snapshot;
+            if (!isUsable(cur, url)) return Optional.empty();
+            return cur.books().stream().filter(b -> Objects.equals(b.bookUrl(), book.bookUrl())).findFirst();
+        });
+    }
+
+    /**
+     * 模糊搜索，按得分从高到低返回；没有缓存时返回空并在后台加载
+     */
+    public List<LegadoUtil.Book> search(String query, int limit) {
+        Snapshot s = current();
+        if (s == null) return Collections.emptyList();
+        return search(s, query, limit);
+    }
+
+    public List<LegadoUtil.Book> books() {
+        Snapshot s = current();
+        return s == null ? Collections.emptyList() : s.books();
+    }
+
+    /**
+     * 返回当前地址下的缓存；过期时触发后台刷新但仍返回旧数据
+     */
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        String url = NovelConfig.effectiveLegadoUrl();
+        if (!isUsable(s, url)) {
+            refresh(url);
+            return null;
+        }
+        if (System.currentTimeMillis() - s.fetchedAt() > TTL_MS) refresh(url);
+        return s;
+    }
+
+    private static boolean isUsable(Snapshot s, String url) {
+        return s != null && Objects.equals(s.sourceUrl(), url);
+    }
+
+    /**
+     * 后台刷新书架，多次调用合并为同一个请求
+     */
+    public CompletableFuture<Void> refresh() {
+        return refresh(NovelConfig.effectiveLegadoUrl());
+    }
+
+    /**
+     * 同一地址的并发刷新合并为一个请求；地址改变后旧地址的请求不再复用，
+     * 它晚到的结果也不会覆盖新地址的快照
+     */
+    private synchronized CompletableFuture<Void> refresh(String url) {
+        Refresh running = refreshing;
+        if (running != null && Objects.equals(running.sourceUrl(), url) && !running.future().isDone()) {
+            return running.future();
+        }
+
+        CompletableFuture<Void> future = LegadoUtil.getBookshelfAsync(url).thenAccept(books -> {
+            // 请求失败时保留旧数据
+            if (books == null || books.isEmpty()) return;
+            if (!Objects.equals(url, NovelConfig.effectiveLegadoUrl())) return;
+            Snapshot fresh = index(url, books, System.currentTimeMillis());
+            snapshot = fresh;
+            save(fresh);
+        });
+        refreshing = new Refresh(url, future);
+        return future;
+    }
+
+    // ================= 磁盘快照 =================
+
+    private void load() {
+        if (!Files.exists(file)) return;
+        try {
+            Saved saved = gson.fromJson(Files.readString(file, StandardCharsets.UTF_8), Saved.class);
+            if (saved == null || saved.books() == null || saved.books().isEmpty()) return;
+            snapshot = index(saved.sourceUrl(), saved.books(), saved.fetchedAt());
+        } catch (Exception ignored) {
+            // 文件损坏时当作没有快照，下次刷新后重写
+        }
+    }
+
+    private synchronized void save(Snapshot s) {
+        // 期间已有更新的快照写入，旧结果不再覆盖
+        if (snapshot != s) return;
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(CACHE_FILE + ".tmp");
+            Files.writeString(tmp, gson.toJson(new Saved(s.sourceUrl(), s.fetchedAt(), s.books())), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {}
+    }
+
+    // ================= 索引与打分 =================
+
+    private static Snapshot index(String url, List<LegadoUtil.Book> books, long fetchedAt) {
+        String[] keys = new String[books.size()];
+        Map<Integer, int[]> postings = new HashMap<>();
+        for (int i = 0; i < books.size(); i++) {
+            keys[i] = normalize(books.get(i).name());
+            for (int code : bigrams(keys[i])) {
+                int[] list = postings.get(code);
+                if (list == null) {
+                    postings.put(code, new int[]{i});
+                } else if (list[list.length - 1] != i) {
+                    int[] grown = Arrays.copyOf(list, list.length + 1);
+                    grown[list.length] = i;
+                    postings.put(code, grown);
+                }
+            }
+        }
+        return new Snapshot(url, List.copyOf(books), keys, postings, fetchedAt);
+    }
+
+    private static List<LegadoUtil.Book> search(Snapshot s, String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty()) return Collections.emptyList();
+
+        int n = s.books().size();
+        int[] score = new int[n];
+        // 完全相同 / 前缀 / 包含 直接给高分
+        for (int i = 0; i < n; i++) {
+            String key = s.keys()[i];
+            if (key.equals(q)) score[i] = 3000;
+            else if (key.startsWith(q)) score[i] = 2000;
+            else if (key.contains(q)) score[i] = 1000;
+        }
+        // 二元组命中数，容忍错字、漏字和顺序变化
+        int[] grams = bigrams(q);
+        for (int code : grams) {
+            int[] list = s.bigrams().get(code);
+            if (list == null) continue;
+            for (int i : list) score[i] += 100;
+        }
+
+        Integer[] order = new Integer[n];
+        int count = 0;
+        // 至少命中一半二元组才算匹配，单字查询只认包含
+        int threshold = Math.max(1, grams.length / 2) * 100;
+        for (int i = 0; i < n; i++) {
+            if (score[i] >= 1000 || (grams.length > 0 && score[i] >= threshold)) order[count++] = i;
+        }
+        Arrays.sort(order, 0, count, (a, b) -> score[b] != score[a]
+                ? Integer.compare(score[b], score[a])
+                : Integer.compare(s.keys()[a].length(), s.keys()[b].length()));
+
+        List<LegadoUtil.Book> result = new ArrayList<>(Math.min(limit, count));
+        for (int i = 0; i < count && result.size() < limit; i++) result.add(s.books().get(order[i]));
+        return result;
+    }
+
+    /**
+     * 去重后的二元组编码 (c1 << 16 | c2)
+     */
+    private static int[] bigrams(String s) {
+        if (s.length() < 2) return new int[0];
+        int[] codes = new int[s.length() - 1];
+        for (int i = 0; i < codes.length; i++) codes[i] = (s.charAt(i) << 16) | s.charAt(i + 1);
+        return Arrays.stream(codes).distinct().toArray();
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c) || c == '《' || c == '》') continue;
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+}
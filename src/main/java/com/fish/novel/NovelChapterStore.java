@@ -0,0 +1,288 @@
+package com.fish.novel;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ComponentManager;
+import com.intellij.openapi.components.Service;
+
+import java.io.*;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 本地章节缓存：IDE system 目录下按 (bookUrl, 章节索引) 存放 gzip 压缩的正文，
+ * index 文件记录 LRU 顺序和大小，超出容量时淘汰最久未读的章节。
+ * index 是追加写的日志：每次写入、淘汰只追加几行，行数超过条目数的两倍时才整体重写，
+ * 预读写入章节时不必每次重写整个索引。
+ * 同时保存每本书的章节目录（每行一个标题），重连时无需重新下载
+ */
+@Service(Service.Level.APP)
+public final class NovelChapterStore implements Disposable {
+
+    private static final String INDEX_FILE = "index.txt";
+    // 日志中表示删除的大小
+    private static final long REMOVED = -1;
+    private static final int MIN_COMPACT_LINES = 256;
+
+    private final Path dir;
+    private final Path tocDir;
+    // key -> 文件字节数，accessOrder = true 即 LRU 顺序（最久未用在前）
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    // 读取只改变 LRU 顺序，不写日志，退出或下次重写时一并保存
+    private boolean indexDirty = false;
+    // index 文件当前的行数，远多于条目数时重写
+    private int indexLines = 0;
+
+    public static NovelChapterStore getInstance() {
+        return ((ComponentManager)ApplicationManager.getApplication()).getService(NovelChapterStore.class);
+    }
+
+    public NovelChapterStore() {
+        this.dir = Paths.get(PathManager.getSystemPath(), "kan-book", "chapters");
+        this.tocDir = Paths.get(PathManager.getSystemPath(), "kan-book", "toc");
+        loadIndex();
+    }
+
+    public synchronized Optional<String> get(String bookUrl, int index) {
+        return read(bookUrl, index, true);
+    }
+
+    /**
+     * 读取但不刷新 LRU 顺序，供后台建立搜索索引时遍历，不影响淘汰
+     */
+    public synchronized Optional<String> peek(String bookUrl, int index) {
+        return read(bookUrl, index, false);
+    }
+
+    private Optional<String> read(String bookUrl, int index, boolean touch) {
+        String key = key(bookUrl, index);
+        if (!entries.containsKey(key)) return Optional.empty();
+
+        Path file = dir.resolve(key + ".gz");
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            if (touch) {
+                entries.get(key); // 刷新 LRU 顺序
+                indexDirty = true;
+            }
+            return Optional.of(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (ClosedByInterruptException e) {
+            // 读取线程被中断（加载被取消、通道关闭），文件本身没有问题，不能移出索引
+            return Optional.empty();
+        } catch (IOException e) {
+            // 文件损坏或被外部删除，移出索引
+            remove(key);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String bookUrl, int index, String content) {
+        if (content == null) return;
+        // 压缩在锁外完成，不挡住前台的读取
+        byte[] compressed;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length());
+            try (OutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+            compressed = buffer.toByteArray();
+        } catch (IOException e) {
+            return;
+        }
+        write(key(bookUrl, index), compressed);
+    }
+
+    private synchronized void write(String key, byte[] compressed) {
+        try {
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(key + ".gz"), compressed);
+            long size = compressed.length;
+            Long old = entries.put(key, size);
+            if (old != null) totalBytes -= old;
+            totalBytes += size;
+
+            StringBuilder log = new StringBuilder();
+            logLine(log, key, size);
+            evictToBudget(log);
+            appendIndex(log);
+        } catch (IOException e) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 删除某本书已缓存的全部章节正文（目录发生非追加式变化时，旧索引对应的正文已不可信）
+     */
+    public synchronized void removeBook(String bookUrl) {
+        String prefix = hash(bookUrl) + "-";
+        StringBuilder log = new StringBuilder();
+        for (String key : new ArrayList<>(entries.keySet())) {
+            if (!key.startsWith(prefix)) continue;
+            drop(key);
+            logLine(log, key, REMOVED);
+        }
+        appendIndex(log);
+    }
+
+    // ================= 章节目录 =================
+
+    public synchronized NovelChapterTable loadToc(String bookUrl) {
+        Path file = tocDir.resolve(hash(bookUrl) + ".toc");
+        if (!Files.exists(file)) return null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            NovelChapterTable.Builder builder = new NovelChapterTable.Builder();
+            String line;
+            while ((line = reader.readLine()) != null) builder.add(line);
+            return builder.build();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 保存目录中 [from, size) 的章节；from 为 0 时整体重写，否则追加到已有文件末尾
+     */
+    public synchronized void saveToc(String bookUrl, NovelChapterTable toc, int from) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < toc.size(); i++) {
+            // 标题按行存储，去掉其中的换行
+            sb.append(toc.title(i).replace('\n', ' ').replace('\r', ' ')).append('\n');
+        }
+        try {
+            Files.createDirectories(tocDir);
+            Path file = tocDir.resolve(hash(bookUrl) + ".toc");
+            if (from == 0) {
+                Files.writeString(file, sb, StandardCharsets.UTF_8);
+            } else {
+                Files.writeString(file, sb, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * 按配置的容量淘汰最久未读的章节
+     */
+    private void evictToBudget(StringBuilder log) {
+        long budget = Math.max(0, NovelConfig.getInstance().chapterCacheMb) * 1024L * 1024L;
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > budget && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            deleteQuietly(eldest.getKey());
+            logLine(log, eldest.getKey(), REMOVED);
+        }
+    }
+
+    private void remove(String key) {
+        drop(key);
+        appendIndex(logLine(new StringBuilder(), key, REMOVED));
+    }
+
+    private void drop(String key) {
+        Long size = entries.remove(key);
+        if (size != null) totalBytes -= size;
+        deleteQuietly(key);
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            Files.deleteIfExists(dir.resolve(key + ".gz"));
+        } catch (IOException ignored) {}
+    }
+
+    // ================= 索引文件 =================
+    // 每行 "key\t大小"，大小为 -1 表示删除；按顺序重放即得到条目和 LRU 顺序
+
+    private void loadIndex() {
+        Path index = dir.resolve(INDEX_FILE);
+        if (!Files.exists(index)) return;
+        try {
+            List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+            indexLines = lines.size();
+            for (String line : lines) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) continue;
+                String key = line.substring(0, tab);
+                long size = Long.parseLong(line.substring(tab + 1));
+                Long old = size == REMOVED ? entries.remove(key) : entries.put(key, size);
+                if (old != null) totalBytes -= old;
+                if (size != REMOVED) totalBytes += size;
+            }
+        } catch (IOException | NumberFormatException e) {
+            entries.clear();
+            totalBytes = 0;
+            return;
+        }
+        // 跳过已经不存在的文件
+        entries.entrySet().removeIf(e -> {
+            if (Files.exists(dir.resolve(e.getKey() + ".gz"))) return false;
+            totalBytes -= e.getValue();
+            return true;
+        });
+    }
+
+    private static StringBuilder logLine(StringBuilder log, String key, long size) {
+        return log.append(key).append('\t').append(size).append('\n');
+    }
+
+    /**
+     * 追加日志行；行数超过条目数的两倍时改为整体重写，日志不会无限增长
+     */
+    private void appendIndex(StringBuilder log) {
+        if (log.isEmpty()) return;
+        int added = 0;
+        for (int i = 0; i < log.length(); i++) if (log.charAt(i) == '\n') added++;
+        if (indexLines + added > Math.max(MIN_COMPACT_LINES, entries.size() * 2)) {
+            saveIndex();
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(INDEX_FILE), log, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            indexLines += added;
+        } catch (IOException ignored) {}
+    }
+
+    private void saveIndex() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> e : entries.entrySet()) {
+            sb.append(e.getKey()).append('\t').append(e.getValue()).append('\n');
+        }
+        try {
+            Files.createDirectories(dir);
+            // 先写临时文件再替换，避免写到一半时 IDE 退出导致索引损坏
+            Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+            Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+            Files.move(tmp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexDirty = false;
+            indexLines = entries.size();
+        } catch (IOException ignored) {}
+    }
+
+    private static String key(String bookUrl, int index) {
+        return hash(bookUrl) + "-" + index;
+    }
+
+    static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (Exception e) {
+            return Integer.toHexString(String.valueOf(value).hashCode());
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        // 读取只会改变 LRU 顺序，退出时统一落盘
+        if (indexDirty) saveIndex();
+    }
+}
@@ -0,0 +1,150 @@
+package com.fish.novel;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * 紧凑的章节目录：所有标题共用一个 char[]，offsets[i]..offsets[i+1] 为第 i 章标题。
+ * 阅读只按章节索引请求正文，章节 URL 不保留
+ */
+public final class NovelChapterTable {
+
+    public static final NovelChapterTable EMPTY = new NovelChapterTable(new char[0], new int[]{0}, 0);
+
+    public static final int TAIL_HASH_SIZE = 8;
+
+    private final char[] titles;
+    private final int[] offsets;
+    private final int size;
+
+    private NovelChapterTable(char[] titles, int[] offsets, int size) {
+        this.titles = titles;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public long estimateBytes() {
+        return (long) titles.length * 2 + (long) offsets.length * 4;
+    }
+
+    public String title(int index) {
+        if (index < 0 || index >= size) return "";
+        return new String(titles, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    /**
+     * 前 count 章中最后 {@link #TAIL_HASH_SIZE} 个标题的哈希，
+     * 用于判断新目录是否只是在旧目录末尾追加了章节
+     */
+    public long tailHash(int count) {
+        if (count > size) return 0;
+        long h = count;
+        for (int i = Math.max(0, count - TAIL_HASH_SIZE); i < count; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) h = h * 31 + titles[j];
+            h = h * 31 + '\n';
+        }
+        return h;
+    }
+
+    /**
+     * 目录指纹是否与书架中的书籍信息一致（章节数 + 最新章节标题）
+     */
+    public boolean matches(LegadoUtil.Book book) {
+        if (size == 0 || size != book.totalChapterNum()) return false;
+        return book.latestChapterTitle() == null || book.latestChapterTitle().equals(title(size - 1));
+    }
+
+    /**
+     * 在本目录后追加 tail 中 [from, tail.size()) 的章节
+     */
+    public NovelChapterTable append(NovelChapterTable tail, int from) {
+        Builder builder = new Builder(this);
+        for (int i = from; i < tail.size; i++) {
+            builder.add(CharBuffer.wrap(tail.titles, tail.offsets[i], tail.offsets[i + 1] - tail.offsets[i]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 流式解析 /getChapterList 的响应，兼容 {"data":[...]} 和直接返回数组两种格式，
+     * 只读取每个章节对象的 title 字段，其余字段跳过
+     */
+    public static NovelChapterTable parse(JsonReader reader) throws IOException {
+        Builder builder = new Builder();
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            readChapters(reader, builder);
+        } else if (token == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("data".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    readChapters(reader, builder);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return builder.build();
+    }
+
+    private static void readChapters(JsonReader reader, Builder builder) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String title = "";
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("title".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    title = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            builder.add(title);
+        }
+        reader.endArray();
+    }
+
+    public static final class Builder {
+        private char[] chars = new char[4096];
+        private int[] offsets = new int[256];
+        private int length = 0;
+        private int size = 0;
+
+        public Builder() {}
+
+        private Builder(NovelChapterTable base) {
+            this.chars = Arrays.copyOf(base.titles, Math.max(16, base.titles.length * 2));
+            this.offsets = Arrays.copyOf(base.offsets, Math.max(16, base.size * 2 + 2));
+            this.length = base.offsets[base.size];
+            this.size = base.size;
+        }
+
+        public Builder add(CharSequence title) {
+            if (length + title.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + title.length()));
+            }
+            for (int i = 0; i < title.length(); i++) chars[length++] = title.charAt(i);
+            if (size + 2 > offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            offsets[++size] = length;
+            return this;
+        }
+
+        public NovelChapterTable build() {
+            return new NovelChapterTable(Arrays.copyOf(chars, length), Arrays.copyOf(offsets, size + 1), size);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.fish.novel;
+
+import java.util.Arrays;
+
+/**
+ * 规范化后的章节正文：去掉段首缩进（全角空格）、空行和换行，段落之间只保留一个
+ * {@link #PARAGRAPH_MARK}，单行 Inlay 中的每个字符都是有效内容。
+ * <p>
+ * 同时保存到原文的偏移映射：每个段落记录一对 (显示起点, 原文起点)，段内偏移一一对应，
+ * 因此只需两个长度为段落数的 int[]。保存进度时换算回原文偏移，
+ * 与手机端 Legado 的 durChapterPos 保持一致
+ */
+public final class NovelChapterText {
+
+    public static final char PARAGRAPH_MARK = '¶';
+
+    private final String display;
+    // 第 k 段在 display 和原文中的起点
+    private final int[] displayStarts;
+    private final int[] rawStarts;
+
+    private NovelChapterText(String display, int[] displayStarts, int[] rawStarts) {
+        this.display = display;
+        this.displayStarts = displayStarts;
+        this.rawStarts = rawStarts;
+    }
+
+    /**
+     * 一次遍历完成规范化；每一行（去掉首尾空白后非空）视为一个段落
+     */
+    public static NovelChapterText of(String raw) {
+        if (raw == null) raw = "";
+        StringBuilder sb = new StringBuilder(raw.length());
+        int[] displayStarts = new int[16];
+        int[] rawStarts = new int[16];
+        int paragraphs = 0;
+
+        int n = raw.length();
+        int lineStart = 0;
+        while (lineStart < n) {
+            int lineEnd = raw.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = n;
+
+            int from = lineStart;
+            int to = lineEnd;
+            while (from < to && isBlank(raw.charAt(from))) from++;
+            while (to > from && isBlank(raw.charAt(to - 1))) to--;
+
+            if (from < to) {
+                if (paragraphs > 0) sb.append(PARAGRAPH_MARK);
+                if (paragraphs == displayStarts.length) {
+                    displayStarts = Arrays.copyOf(displayStarts, paragraphs * 2);
+                    rawStarts = Arrays.copyOf(rawStarts, paragraphs * 2);
+                }
+                displayStarts[paragraphs] = sb.length();
+                rawStarts[paragraphs] = from;
+                paragraphs++;
+                sb.append(raw, from, to);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new NovelChapterText(sb.toString(),
+                Arrays.copyOf(displayStarts, paragraphs), Arrays.copyOf(rawStarts, paragraphs));
+    }
+
+    private static boolean isBlank(char c) {
+        return Character.isWhitespace(c) || c == '\u00A0';
+    }
+
+    public String display() {
+        return display;
+    }
+
+    public int length() {
+        return display.length();
+    }
+
+    /**
+     * 显示偏移 -> 原文偏移；落在段落标记上时取上一段的结尾
+     */
+    public int toRaw(int displayPos) {
+        if (displayStarts.length == 0) return 0;
+        int pos = Math.max(0, displayPos);
+        int k = segmentOf(displayStarts, pos);
+        return rawStarts[k] + Math.min(pos - displayStarts[k], segmentLength(k));
+    }
+
+    /**
+     * 原文偏移 -> 显示偏移；落在缩进或空行中时取下一段的起点
+     */
+    public int toDisplay(int rawPos) {
+        if (displayStarts.length == 0 || rawPos <= rawStarts[0]) return 0;
+        int k = segmentOf(rawStarts, rawPos);
+        int offset = rawPos - rawStarts[k];
+        int length = segmentLength(k);
+        if (offset < length) return displayStarts[k] + offset;
+        // 段尾之后的空白属于下一段
+        return k + 1 < displayStarts.length ? displayStarts[k + 1] : display.length();
+    }
+
+    private int segmentLength(int k) {
+        int end = k + 1 < displayStarts.length ? displayStarts[k + 1] - 1 : display.length();
+        return end - displayStarts[k];
+    }
+
+    /**
+     * starts 中不大于 pos 的最后一个位置
+     */
+    private static int segmentOf(int[] starts, int pos) {
+        int i = Arrays.binarySearch(starts, pos);
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+
+    /**
+     * 粗略估算占用的堆内存（按 UTF-16 字符计）
+     */
+    public long estimateBytes() {
+        return (long) display.length() * 2 + (long) displayStarts.length * 8;
+    }
+}
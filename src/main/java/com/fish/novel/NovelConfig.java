@@ -13,11 +13,26 @@ public final class NovelConfig implements PersistentStateComponent<NovelConfig>
     public String legadoUrl = "http://192.168.1.113:1122";
     public String bookName = "";
     public String matchPrefix = "函数";  //匹配前缀
+    public int prefetchAhead = 2;   //阅读方向上预加载的章节数
+    public int prefetchBehind = 1;  //反方向保留的章节数
+    public int chapterCacheMb = 64; //本地章节缓存上限(MB)
+    public boolean metricsEnabled = false; //记录性能指标(状态栏面板)
+    public boolean wheelMomentum = false; //滚轮惯性：停止滚动后继续减速滚动
 
     public static NovelConfig getInstance() {
         return ((ComponentManager)ApplicationManager.getApplication()).getService(NovelConfig.class);
     }
 
+    /**
+     * 实际连接的 Legado 地址：系统属性 novel.legado.url 优先于设置页，便于 runIde / 回归测试指向本地的模拟服务器。
+     * 请求和书架缓存都以它为准，否则缓存的键与实际请求的地址会不一致。
+     * 有系统属性时不访问配置服务，无 IDE 容器的 JMH 基准也能使用
+     */
+    public static String effectiveLegadoUrl() {
+        String override = System.getProperty("novel.legado.url");
+        return override == null || override.isEmpty() ? getInstance().legadoUrl : override;
+    }
+
     @Override
     public @Nullable NovelConfig getState() {
         return this;
@@ -26,5 +41,7 @@ public final class NovelConfig implements PersistentStateComponent<NovelConfig>
     @Override
     public void loadState(@NotNull NovelConfig state) {
         XmlSerializerUtil.copyBean(state, this);
+        NovelTriggerMatcher.invalidate();
+        NovelMetrics.setEnabled(metricsEnabled);
     }
 }
\ No newline at end of file
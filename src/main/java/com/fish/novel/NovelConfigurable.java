@@ -5,13 +5,23 @@ import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.util.List;
 
 public class NovelConfigurable implements Configurable {
 
     private JTextField urlField;
     private JTextField bookNameField;
+    private JComboBox<String> bookPicker;
+    private boolean updatingPicker = false;
     private JTextField matchTextField;
+    private JSpinner prefetchAheadSpinner;
+    private JSpinner prefetchBehindSpinner;
+    private JSpinner cacheSizeSpinner;
+    private JCheckBox metricsCheckBox;
+    private JCheckBox momentumCheckBox;
     @Override
     public @Nls(capitalization = Nls.Capitalization.Title) String getDisplayName() {
         return "Novel Reader";
@@ -20,7 +30,7 @@ public class NovelConfigurable implements Configurable {
 
     @Override
     public @Nullable JComponent createComponent() {
-        JPanel panel = new JPanel(new GridLayout(4, 1)); // 简单布局
+        JPanel panel = new JPanel(new GridLayout(8, 1)); // 简单布局
 
         JPanel urlPanel = new JPanel(new BorderLayout());
         urlPanel.add(new JLabel("阅读(Legado) Web服务URL (e.g. 192.168.1.5:1122): "), BorderLayout.WEST);
@@ -28,37 +38,100 @@ public class NovelConfigurable implements Configurable {
         urlPanel.add(urlField, BorderLayout.CENTER);
 
         JPanel bookPanel = new JPanel(new BorderLayout());
-        bookPanel.add(new JLabel("书名: "), BorderLayout.WEST);
+        bookPanel.add(new JLabel("书名 (或本地 TXT 文件路径): "), BorderLayout.WEST);
         bookNameField = new JTextField();
         bookPanel.add(bookNameField, BorderLayout.CENTER);
+        // 书架候选：输入时按模糊匹配得分刷新，选中后填入书名
+        bookPicker = new JComboBox<>();
+        bookPicker.setPrototypeDisplayValue("书架中匹配的书籍书籍");
+        bookPicker.addActionListener(e -> {
+            Object selected = bookPicker.getSelectedItem();
+            if (!updatingPicker && selected != null) {
+                SwingUtilities.invokeLater(() -> bookNameField.setText(selected.toString()));
+            }
+        });
+        bookPanel.add(bookPicker, BorderLayout.EAST);
+        bookNameField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { refreshBookPicker(); }
+            @Override public void removeUpdate(DocumentEvent e) { refreshBookPicker(); }
+            @Override public void changedUpdate(DocumentEvent e) { refreshBookPicker(); }
+        });
 
 
         JPanel matchTextPanel = new JPanel(new BorderLayout());
-        matchTextPanel.add(new JLabel("匹配关键词: "), BorderLayout.WEST);
+        matchTextPanel.add(new JLabel("匹配关键词(多个用逗号分隔): "), BorderLayout.WEST);
         matchTextField = new JTextField();
         matchTextPanel.add(matchTextField, BorderLayout.CENTER);
 
+        JPanel prefetchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        prefetchPanel.add(new JLabel("预加载章节数 向后: "));
+        prefetchAheadSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 20, 1));
+        prefetchPanel.add(prefetchAheadSpinner);
+        prefetchPanel.add(new JLabel("  向前: "));
+        prefetchBehindSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 20, 1));
+        prefetchPanel.add(prefetchBehindSpinner);
+
+        JPanel cachePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        cachePanel.add(new JLabel("本地章节缓存上限(MB): "));
+        cacheSizeSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 4096, 16));
+        cachePanel.add(cacheSizeSpinner);
+
+        momentumCheckBox = new JCheckBox("滚轮惯性（触控板快速滑动后继续减速翻页）");
+        metricsCheckBox = new JCheckBox("记录性能指标（状态栏右键勾选 \"Novel Reader 性能指标\" 查看）");
 
         panel.add(urlPanel);
         panel.add(bookPanel);
         panel.add(matchTextPanel);
+        panel.add(prefetchPanel);
+        panel.add(cachePanel);
+        panel.add(momentumCheckBox);
+        panel.add(metricsCheckBox);
         panel.add(new JLabel("提示：修改后需在编辑器内滚动滚轮触发重载"));
 
         NovelConfig config = NovelConfig.getInstance();
         urlField.setText(config.legadoUrl);
         bookNameField.setText(config.bookName);
         matchTextField.setText(config.matchPrefix);
+        prefetchAheadSpinner.setValue(config.prefetchAhead);
+        prefetchBehindSpinner.setValue(config.prefetchBehind);
+        cacheSizeSpinner.setValue(config.chapterCacheMb);
+        momentumCheckBox.setSelected(config.wheelMomentum);
+        metricsCheckBox.setSelected(config.metricsEnabled);
+        // 设置页是模态对话框，用 SwingUtilities 而不是 Application.invokeLater
+        NovelBookshelf.getInstance().refresh().thenRun(() -> SwingUtilities.invokeLater(this::refreshBookPicker));
         JPanel wrapper = new JPanel(new BorderLayout());
         wrapper.add(panel, BorderLayout.NORTH);
         return wrapper;
     }
 
+    private void refreshBookPicker() {
+        if (bookPicker == null) return;
+        String query = bookNameField.getText();
+        NovelBookshelf bookshelf = NovelBookshelf.getInstance();
+        List<LegadoUtil.Book> books = query.isBlank() ? bookshelf.books() : bookshelf.search(query, 20);
+
+        updatingPicker = true;
+        try {
+            DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+            for (LegadoUtil.Book book : books) model.addElement(book.name());
+            model.setSelectedItem(null);
+            bookPicker.setModel(model);
+        } finally {
+            updatingPicker = false;
+        }
+    }
+
     @Override
     public boolean isModified() {
         NovelConfig config = NovelConfig.getInstance();
         return !urlField.getText().equals(config.legadoUrl) ||
                !bookNameField.getText().equals(config.bookName) ||
-        !matchTextField.getText().equals(config.matchPrefix);
+        !matchTextField.getText().equals(config.matchPrefix) ||
+               (int) prefetchAheadSpinner.getValue() != config.prefetchAhead ||
+               (int) prefetchBehindSpinner.getValue() != config.prefetchBehind ||
+               (int) cacheSizeSpinner.getValue() != config.chapterCacheMb ||
+               momentumCheckBox.isSelected() != config.wheelMomentum ||
+               metricsCheckBox.isSelected() != config.metricsEnabled;
     }
 
     @Override
@@ -67,6 +140,13 @@ public class NovelConfigurable implements Configurable {
         config.legadoUrl = urlField.getText();
         config.bookName = bookNameField.getText();
         config.matchPrefix = matchTextField.getText();
+        NovelTriggerMatcher.invalidate();
+        config.prefetchAhead = (int) prefetchAheadSpinner.getValue();
+        config.prefetchBehind = (int) prefetchBehindSpinner.getValue();
+        config.chapterCacheMb = (int) cacheSizeSpinner.getValue();
+        config.wheelMomentum = momentumCheckBox.isSelected();
+        config.metricsEnabled = metricsCheckBox.isSelected();
+        NovelMetrics.setEnabled(config.metricsEnabled);
         // 配置修改后，强制 Service 重载
         NovelGlobalService.getInstance().reload();
     }
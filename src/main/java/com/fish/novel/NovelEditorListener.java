@@ -2,42 +2,128 @@ package com.fish.novel;
 
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.Inlay;
+import com.intellij.openapi.editor.colors.EditorFontType;
 import com.intellij.openapi.editor.event.*;
-import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.fileEditor.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import javax.swing.*;
 import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.FocusListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 
-public class NovelEditorListener implements EditorFactoryListener {
+/**
+ * 编辑器挂载：整个 IDE 只有一个 Handler，挂在拥有键盘焦点的 Java 编辑器上。
+ * 本类在应用级注册，只有一个实例：FileEditorManagerListener 的 topic 向上广播，
+ * 所有项目的选中编辑器变化都会送到这里，因此"当前挂载的编辑器"是实例状态，不需要跨实例共享。
+ * 每个项目只在当前选中的 Java 编辑器上挂一个焦点监听（记录在 Project 的 UserData 中）：
+ * 获得焦点时挂载 Handler，焦点移到工具窗口等处时卸下，切换标签页或关闭文件时改为监听新的编辑器。
+ * 切换项目窗口不会改变任何项目的选中编辑器，但新窗口的编辑器会获得焦点，Handler 随之移过去。
+ * 其余编辑器上不挂任何监听，按键和光标移动没有额外开销
+ */
+public class NovelEditorListener implements FileEditorManagerListener {
+
+    public static final Key<Disposable> HANDLER_KEY = Key.create("NovelHandler");
+    // 项目中被监听焦点的编辑器
+    private static final Key<Watch> WATCH_KEY = Key.create("NovelWatch");
+
+    /**
+     * 某个项目选中的 Java 编辑器及挂在它上面的焦点监听
+     */
+    private record Watch(Editor editor, FocusListener focusListener) {}
+
+    // 当前挂载 Handler 的编辑器，只在 EDT 上读写
+    private Editor attached;
 
     @Override
-    public void editorCreated(@NotNull EditorFactoryEvent event) {
-        initEditor(event.getEditor());
+    public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+        FileEditor selected = event.getNewEditor();
+        watch(event.getManager().getProject(), selected instanceof TextEditor text ? text.getEditor() : null);
     }
 
     @Override
-    public void editorReleased(@NotNull EditorFactoryEvent event) {
-        Editor editor = event.getEditor();
-        Disposable handler = editor.getUserData(NovelGlobalService.HANDLER_KEY);
-        if (handler != null) {
-            handler.dispose();
-            editor.putUserData(NovelGlobalService.HANDLER_KEY, null);
+    public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        // 项目打开时恢复的标签页不一定触发 selectionChanged
+        if (source.getProject().getUserData(WATCH_KEY) == null) watch(source.getProject(), source.getSelectedTextEditor());
+    }
+
+    @Override
+    public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        Watch current = source.getProject().getUserData(WATCH_KEY);
+        if (current == null) return;
+        Editor editor = current.editor();
+        if (editor.isDisposed() || file.equals(editor.getVirtualFile())) watch(source.getProject(), null);
+    }
+
+    /**
+     * 把项目的焦点监听移到 editor 上；它已经有焦点时（切换标签页后焦点通常先到）直接挂载
+     */
+    private void watch(@NotNull Project project, @Nullable Editor editor) {
+        Watch previous = project.getUserData(WATCH_KEY);
+        if (previous != null && previous.editor() == editor) return;
+        if (previous != null) {
+            previous.editor().getContentComponent().removeFocusListener(previous.focusListener());
+            if (attached == previous.editor()) detach();
+        }
+        if (!isReadable(editor)) {
+            project.putUserData(WATCH_KEY, null);
+            return;
         }
+        FocusListener focusListener = new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                attach(editor);
+            }
+
+            @Override
+            public void focusLost(FocusEvent e) {
+                // 弹出菜单、对话框、切到其他窗口属于临时失焦，不卸下；切到其他项目时由那边的 focusGained 接管
+                if (!e.isTemporary() && attached == editor) detach();
+            }
+        };
+        project.putUserData(WATCH_KEY, new Watch(editor, focusListener));
+        JComponent component = editor.getContentComponent();
+        component.addFocusListener(focusListener);
+        if (component.hasFocus()) attach(editor);
     }
 
-    public void initEditor(Editor editor) {
+    private static boolean isReadable(@Nullable Editor editor) {
+        if (editor == null || editor.isDisposed()) return false;
         VirtualFile virtualFile = editor.getVirtualFile();
-        if (virtualFile == null || !virtualFile.getName().endsWith(".java")) return; // 仅限Java，可自行去掉限制
-        if (editor.getUserData(NovelGlobalService.HANDLER_KEY) != null) return;
+        return virtualFile != null && virtualFile.getName().endsWith(".java"); // 仅限Java，可自行去掉限制
+    }
+
+    private void attach(@Nullable Editor editor) {
+        // Service 销毁时 Handler 会随之释放，此时即使是同一个编辑器也要重新挂载
+        if (editor == attached && editor != null && editor.getUserData(HANDLER_KEY) != null) return;
+        detach();
+        if (!isReadable(editor)) return;
 
         NovelHandler handler = new NovelHandler(editor);
-        editor.putUserData(NovelGlobalService.HANDLER_KEY, handler);
+        editor.putUserData(HANDLER_KEY, handler);
+        attached = editor;
+        // 切回光标仍在关键词后的编辑器时直接恢复阅读
+        handler.checkCaret();
+    }
+
+    private void detach() {
+        Editor editor = attached;
+        attached = null;
+        if (editor == null) return;
+        Disposable handler = editor.getUserData(HANDLER_KEY);
+        // 同时从 Disposer 树中移除（激活过的 Handler 挂在 Service 下）
+        if (handler != null) Disposer.dispose(handler);
     }
 
     private static class NovelHandler implements Disposable {
@@ -45,23 +131,29 @@ public class NovelEditorListener implements EditorFactoryListener {
         private final CaretListener caretListener;
         private final DocumentListener documentListener;
         private final MouseWheelListener mouseWheelListener;
+        private final NovelWheelAccumulator wheel;
         private final Runnable uiRefreshCallback;
 
         private boolean isActive = false;
-        private Inlay<?> currentInlay = null;
+        // 首次激活时取得的 Service
+        private NovelGlobalService connected;
+        private Inlay<NovelInlayRenderer> currentInlay = null;
         private int currentTriggerOffset = -1;
 
+        // 当前章节的行表，后台计算完成后在 EDT 上替换
+        private NovelLineLayout lineLayout = null;
+        private String layoutPendingFor = null;
+
         //private static final String TRIGGER = "假如";
         private static final int RENDER_BUFFER_SIZE = 100; // 预读长度
 
         public NovelHandler(Editor editor) {
             this.editor = editor;
 
-            // 1. Service 通知回调
+            // 1. Service 通知回调，激活阅读时才注册，未触发前不创建 Service
             this.uiRefreshCallback = () -> {
                 if (isActive && !editor.isDisposed()) updateDisplay();
             };
-            NovelGlobalService.getInstance().addUiListener(this.uiRefreshCallback);
 
             // 2. 监听器
             this.caretListener = new CaretListener() {
@@ -72,6 +164,7 @@ public class NovelEditorListener implements EditorFactoryListener {
                 @Override
                 public void documentChanged(@NotNull DocumentEvent event) { checkCaret(); }
             };
+            this.wheel = new NovelWheelAccumulator(this::moveLines, () -> NovelConfig.getInstance().wheelMomentum);
             this.mouseWheelListener = new MouseWheelListener() {
                 @Override
                 public void mouseWheelMoved(MouseWheelEvent e) { handleMouseWheel(e); }
@@ -84,64 +177,105 @@ public class NovelEditorListener implements EditorFactoryListener {
         private void handleMouseWheel(MouseWheelEvent e) {
             if (!isActive) return;
             e.consume();
+            // 高精度增量先累加，每帧合并成一次移动
+            wheel.add(e.getPreciseWheelRotation());
+        }
+
+        /**
+         * 一次移动 lines 行（负数向前），只调用一次 setIndex；
+         * 跨章只发生在已处于首行/末行时，同一批中多余的行数丢弃
+         */
+        private void moveLines(int lines) {
+            if (!isActive || lines == 0) return;
 
             NovelGlobalService service = NovelGlobalService.getInstance();
-            String content = service.getContent();
-            int currentIndex = service.getIndex();
-            int rot = e.getWheelRotation();
+            // 正文和位置来自同一个快照
+            NovelReaderState state = service.getState();
+            String content = state.content();
+            int currentIndex = state.textIndex();
 
+            // 行表就绪时，翻页只是行号加减
+            NovelLineLayout layout = currentLayout(content);
+            if (layout != null) {
+                int line = layout.lineOf(currentIndex);
+                int last = layout.lineCount() - 1;
+                if (lines > 0) {
+                    // 最后一行的行尾即章节长度，会触发 Service 的“下一章”逻辑
+                    service.setIndex(line >= last ? layout.lineEnd(line) : layout.lineStart(Math.min(last, line + lines)));
+                } else {
+                    service.setIndex(line > 0 ? layout.lineStart(Math.max(0, line + lines)) : -1);
+                }
+                return;
+            }
+
+            // 行表尚未算好，退回逐字测量
             // 准备计算环境
             int availableWidth = NovelInlayRenderer.VIEWPORT_WIDTH - NovelInlayRenderer.PADDING_LEFT;
-            String sample = (content != null && content.length() > currentIndex + 10)
+            String sample = content.length() > currentIndex + 10
                     ? content.substring(currentIndex, currentIndex + 10) : "";
             Font font = NovelInlayRenderer.getSmartFont(editor, sample);
             FontMetrics metrics = editor.getContentComponent().getFontMetrics(font);
+            int length = content.length();
 
-            int step = 0;
-            if (rot > 0) {
-                // 下翻：计算从当前位置往后，多少字能填满一行
-                String seg = "";
-                if (content != null && currentIndex < content.length()) {
-                    int end = Math.min(currentIndex + RENDER_BUFFER_SIZE, content.length());
-                    seg = content.substring(currentIndex, end);
-                }
-                // 使用核心算法计算步长
-                step = NovelInlayRenderer.calculateFittingCount(seg, metrics, availableWidth);
-                if (step == 0) step = 1; // 防止死循环
-            } else {
-                // 上翻：倒序查找上一行起点
-                if (currentIndex > 0) {
-                    int currentW = 0;
-                    int count = 0;
-                    for (int i = currentIndex - 1; i >= 0; i--) {
-                        if (content == null) break;
-                        char c = content.charAt(i);
-                        int charW = metrics.charWidth(c);
-                        if (currentW + charW > availableWidth) break;
-                        currentW += charW;
-                        count++;
-                        if (count > RENDER_BUFFER_SIZE) break;
-                    }
-                    step = Math.max(1, count);
+            int index = currentIndex;
+            for (int i = 0; i < Math.abs(lines); i++) {
+                if (lines > 0) {
+                    if (index >= length) break;
+                    // 下翻：计算从当前位置往后，多少字能填满一行
+                    int end = Math.min(index + RENDER_BUFFER_SIZE, length);
+                    int step = Math.max(1, NovelInlayRenderer.calculateFittingCount(content, index, end, metrics, availableWidth)); // 防止死循环
+                    // 与行表一致：只有从最后一行出发才进入下一章
+                    if (index + step >= length && i > 0) break;
+                    index += step;
                 } else {
-                    // ⚠️ 修复点：已经在开头了，强制步长为 1
-                    // 这样 newIndex 就会变成 0 - 1 = -1，触发 Service 的“上一章”逻辑
-                    step = 1;
+                    if (index <= 0) {
+                        // ⚠️ 修复点：已经在开头了，强制步长为 1
+                        // 这样 newIndex 就会变成 0 - 1 = -1，触发 Service 的“上一章”逻辑
+                        if (i == 0) index = -1;
+                        break;
+                    }
+                    // 上翻：倒序查找上一行起点
+                    int count = NovelInlayRenderer.calculateFittingCountBackward(
+                            content, Math.min(index, length), metrics, availableWidth, RENDER_BUFFER_SIZE + 1);
+                    index -= Math.max(1, count);
                 }
             }
+            service.setIndex(index);
+        }
 
-            service.setIndex(currentIndex + (rot > 0 ? step : -step));
+        /**
+         * 取当前章节可用的行表；失效时（换章、换字体、换宽度）在后台重新计算并返回 null
+         */
+        private NovelLineLayout currentLayout(String content) {
+            Font codeFont = editor.getColorsScheme().getFont(EditorFontType.PLAIN);
+            int width = NovelInlayRenderer.VIEWPORT_WIDTH - NovelInlayRenderer.PADDING_LEFT;
+            NovelLineLayout layout = lineLayout;
+            if (layout != null && layout.matches(content, codeFont, width)) return layout;
+            if (layoutPendingFor == content) return null;
+
+            layoutPendingFor = content;
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                if (editor.isDisposed()) return;
+                Font font = NovelInlayRenderer.getSmartFont(editor, content);
+                FontMetrics metrics = editor.getContentComponent().getFontMetrics(font);
+                NovelLineLayout computed = NovelLineLayout.compute(content, codeFont, font, metrics, width);
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    if (layoutPendingFor == content) layoutPendingFor = null;
+                    lineLayout = computed;
+                    if (isActive && !editor.isDisposed()) updateDisplay();
+                });
+            });
+            return null;
         }
 
         private void checkCaret() {
-            String TRIGGER = NovelConfig.getInstance().matchPrefix;
             if (editor.isDisposed() || editor.getDocument().isInBulkUpdate()) return;
             int offset = editor.getCaretModel().getOffset();
-            if (offset < TRIGGER.length()) { disable(); return; }
 
             try {
-                String prevText = editor.getDocument().getText(new TextRange(offset - TRIGGER.length(), offset));
-                if (TRIGGER.equals(prevText)) {
+                // 直接在文档字符序列上倒序匹配，不截取子串
+                CharSequence text = editor.getDocument().getImmutableCharSequence();
+                if (NovelTriggerMatcher.current().matchEndingAt(text, offset) > 0) {
                     if (isActive && offset == currentTriggerOffset) return;
                     if (isActive && offset != currentTriggerOffset) disable();
                     currentTriggerOffset = offset;
@@ -156,7 +290,13 @@ public class NovelEditorListener implements EditorFactoryListener {
             if (!isActive) {
                 isActive = true;
                 editor.getContentComponent().addMouseWheelListener(mouseWheelListener);
-                NovelGlobalService.getInstance().ensureConnect(); // 懒加载触发点
+                if (connected == null) {
+                    connected = NovelGlobalService.getInstance(); // 懒加载触发点
+                    // 挂在 Service 下：Service 销毁（插件卸载）时 Handler 随之释放
+                    Disposer.register(connected, this);
+                }
+                connected.addUiListener(uiRefreshCallback);
+                connected.ensureConnect();
                 updateDisplay();
             }
         }
@@ -165,40 +305,82 @@ public class NovelEditorListener implements EditorFactoryListener {
             if (isActive) {
                 isActive = false;
                 editor.getContentComponent().removeMouseWheelListener(mouseWheelListener);
+                wheel.stop();
+                // 不再重新获取 Service：Service 销毁时也会经由这里卸下 Handler
+                if (connected != null) connected.removeUiListener(uiRefreshCallback);
                 currentTriggerOffset = -1;
                 disposeInlay();
             }
         }
 
         private void updateDisplay() {
-            ApplicationManager.getApplication().invokeLater(() -> {
-                if (editor.isDisposed() || !isActive) return;
+            // Service 的合并通知本身已在 EDT 上，直接刷新，不再额外排队
+            if (ApplicationManager.getApplication().isDispatchThread()) {
+                doUpdateDisplay();
+            } else {
+                ApplicationManager.getApplication().invokeLater(this::doUpdateDisplay);
+            }
+        }
+
+        private void doUpdateDisplay() {
+            NovelEvents.UpdateDisplay event = new NovelEvents.UpdateDisplay();
+            event.begin();
+            long started = NovelMetrics.start();
+            boolean recreated = refreshInlay();
+            NovelMetrics.stop(NovelMetrics.Timer.UPDATE_DISPLAY, started);
+            event.end();
+            if (event.shouldCommit()) {
+                event.recreated = recreated;
+                event.commit();
+            }
+        }
 
-                NovelGlobalService service = NovelGlobalService.getInstance();
-                String full = service.getContent();
-                int globalIndex = service.getIndex();
+        /**
+         * @return 是否重建了 Inlay
+         */
+        private boolean refreshInlay() {
+            if (editor.isDisposed() || !isActive) return false;
 
-                if (full == null) full = "Loading...";
-                if (globalIndex >= full.length()) globalIndex = Math.max(0, full.length() - 1);
+            // 快照保证 textIndex 落在 content 范围内
+            NovelReaderState state = NovelGlobalService.getInstance().getState();
+            String full = state.content();
+            int globalIndex = state.textIndex();
 
+            String snippet;
+            Font layoutFont = null;
+            FontRenderContext layoutFrc = null;
+            NovelLineLayout layout = currentLayout(full);
+            if (layout != null) {
+                // 直接取行表中的行区间，渲染器无需再测量
+                int line = layout.lineOf(globalIndex);
+                snippet = full.substring(layout.lineStart(line), layout.lineEnd(line));
+                layoutFont = layout.font();
+                layoutFrc = layout.frc();
+            } else {
                 int end = Math.min(globalIndex + RENDER_BUFFER_SIZE, full.length());
-                String snippet = (globalIndex < end) ? full.substring(globalIndex, end) : "";
-
-                WriteCommandAction.runWriteCommandAction(editor.getProject(), () -> {
-                    disposeInlay();
-                    // 再次校验 offset 依然有效
-                    if (currentTriggerOffset != -1 && currentTriggerOffset <= editor.getDocument().getTextLength()) {
-                        Inlay<?> inlay = editor.getInlayModel().addInlineElement(
-                                currentTriggerOffset,
-                                true,
-                                new NovelInlayRenderer(snippet) // Renderer 会根据宽度自动截断
-                        );
-                        currentInlay = inlay;
-                    } else {
-                        disable();
-                    }
-                });
-            });
+                snippet = (globalIndex < end) ? full.substring(globalIndex, end) : "";
+            }
+
+            // 再次校验 offset 依然有效
+            if (currentTriggerOffset == -1 || currentTriggerOffset > editor.getDocument().getTextLength()) {
+                disable();
+                return false;
+            }
+
+            if (currentInlay != null && currentInlay.isValid() && currentInlay.getOffset() == currentTriggerOffset) {
+                // 原地替换文本并重绘，不需要写锁，也不会重排编辑器行
+                if (currentInlay.getRenderer().setText(snippet, layoutFont, layoutFrc)) currentInlay.repaint();
+                return false;
+            } else {
+                // 触发位置变化时才重建 Inlay
+                disposeInlay();
+                currentInlay = editor.getInlayModel().addInlineElement(
+                        currentTriggerOffset,
+                        true,
+                        new NovelInlayRenderer(snippet, layoutFont, layoutFrc) // 无行表时 Renderer 会根据宽度自动截断
+                );
+                return true;
+            }
         }
 
         private void disposeInlay() {
@@ -210,11 +392,10 @@ public class NovelEditorListener implements EditorFactoryListener {
 
         @Override
         public void dispose() {
+            disable();
             editor.getCaretModel().removeCaretListener(caretListener);
-            editor.getDocument().removeDocumentListener(documentListener);
-            editor.getContentComponent().removeMouseWheelListener(mouseWheelListener);
-            NovelGlobalService.getInstance().removeUiListener(this.uiRefreshCallback);
-            disposeInlay();
+            // documentListener 以本对象为父注册，由 Disposer 移除
+            if (editor.getUserData(HANDLER_KEY) == this) editor.putUserData(HANDLER_KEY, null);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.fish.novel;
+
+import jdk.jfr.*;
+
+/**
+ * 热路径的 JFR 事件，在 JDK Mission Control 的 "Novel Reader" 分类下查看。
+ * 未录制时 begin/end/commit 只检查一次是否启用，开销可以忽略；
+ * 测量事件调用极其频繁，默认只记录超过 20µs 的调用
+ */
+final class NovelEvents {
+
+    private NovelEvents() {}
+
+    @Name("com.fish.novel.Request")
+    @Label("Legado Request")
+    @Category({"Novel Reader", "Network"})
+    @Description("一次 Legado Web 服务请求，从发出到响应解压、转换完成")
+    static final class Request extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Status")
+        int status;
+
+        @Label("Content Encoding")
+        String encoding;
+
+        @Label("Wire Bytes")
+        @Description("线路上传输的字节数（压缩后）")
+        @DataAmount
+        long bytes;
+
+        @Label("Decoded Bytes")
+        @DataAmount
+        long decodedBytes;
+    }
+
+    @Name("com.fish.novel.Parse")
+    @Label("Response Parse")
+    @Category({"Novel Reader", "Network"})
+    static final class Parse extends Event {
+        @Label("Path")
+        String path;
+    }
+
+    @Name("com.fish.novel.Measure")
+    @Label("Measure Line")
+    @Category({"Novel Reader", "Layout"})
+    @Threshold("20 us")
+    static final class Measure extends Event {
+        @Label("Characters Fitted")
+        int count;
+    }
+
+    @Name("com.fish.novel.Paint")
+    @Label("Inlay Paint")
+    @Category({"Novel Reader", "Rendering"})
+    static final class Paint extends Event {
+        @Label("Characters")
+        int chars;
+    }
+
+    @Name("com.fish.novel.UpdateDisplay")
+    @Label("Update Display")
+    @Category({"Novel Reader", "Rendering"})
+    static final class UpdateDisplay extends Event {
+        @Label("Inlay Recreated")
+        boolean recreated;
+    }
+}
@@ -4,14 +4,16 @@ import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ComponentManager;
 import com.intellij.openapi.components.Service;
-import com.intellij.openapi.editor.Editor;
-import com.intellij.openapi.editor.EditorFactory;
-import com.intellij.openapi.util.Key;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
 
 /**
  * 核心服务：增加防抖保存机制 (Debounce Saving)
@@ -19,28 +21,59 @@ import java.util.concurrent.*;
 @Service(Service.Level.APP)
 public final class NovelGlobalService implements Disposable {
 
-    public static final Key<Disposable> HANDLER_KEY = Key.create("NovelHandler");
-
     // ================= 状态数据 =================
-    private LegadoUtil.Book currentBook;
-    private List<LegadoUtil.Chapter> chapterList;
-
-    // UI显示的核心数据 (volatile 保证多线程可见性)
-    private volatile String currentContent = "等待连接...";
-    private volatile int currentChapterIndex = -1;
-    private volatile int currentTextIndex = 0; // 章节内精确进度
-
-    private volatile boolean isLoading = false;
-    private volatile boolean isError = false;
-
-    // ================= 任务调度器 (核心修改) =================
-    // 单线程调度器，用于执行后台网络请求和定时任务
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    // 待执行的保存任务（用于防抖）
+    // 书籍、目录、正文、位置整体作为一个不可变快照发布，EDT 和后台线程都只通过 CAS 替换
+    private final AtomicReference<NovelReaderState> state = new AtomicReference<>(NovelReaderState.INITIAL);
+    // 当前书籍的来源：Legado 或本地 TXT
+    private volatile NovelBookSource source = NovelLegadoSource.INSTANCE;
+
+    // ================= 预加载窗口 =================
+    // 已加载并规范化的章节正文 (章节索引 -> 内容)，跨章时直接从内存切换
+    // 切换书籍时整个 Map 随会话保存，因此不能 clear，只能替换
+    private volatile Map<Integer, NovelChapterText> chapterCache = new ConcurrentHashMap<>();
+    // 正在后台预加载的章节，避免重复请求；前台加载同一章时直接复用
+    private final Map<Integer, CompletableFuture<Optional<LegadoUtil.ChapterContent>>> prefetching = new ConcurrentHashMap<>();
+    // 阅读方向：1 = 向后翻，-1 = 向前翻
+    private volatile int readingDirection = 1;
+
+    // ================= 全文搜索 =================
+    // 当前书的倒排索引，随会话保存；章节到达时增量加入，打开书时在后台补全本地已有的章节
+    private volatile NovelSearchIndex searchIndex = new NovelSearchIndex();
+    // 每次搜索递增，单线程的搜索通道上被取代的搜索尽早放弃
+    private final AtomicLong searchGeneration = new AtomicLong();
+
+    // ================= 多书会话 =================
+    // 最近读过的书保持热状态 (bookUrl -> 会话)，按访问顺序 LRU，总内存超限时淘汰最久未读的
+    private static final long MAX_SESSION_BYTES = 32L * 1024 * 1024;
+    private static final int MAX_SESSIONS = 8;
+    private final LinkedHashMap<String, NovelBookSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    // ================= 加载代次 =================
+    // 每次发起前台加载递增，回调时代次不一致说明已被新的请求取代，结果直接丢弃
+    private final AtomicLong loadGeneration = new AtomicLong();
+    private volatile CompletableFuture<?> pendingLoad;
+
+    // ================= 执行通道 =================
+    // 打开书籍/前台加载、进度写入、预读各走各的通道，互不阻塞
+    private final NovelLanes lanes = new NovelLanes();
+    // 前台通道有多个线程，打开书籍必须串行，否则两次 reload 的状态会交错
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    // 退出时等待写入通道写完已排队进度的上限
+    private static final long SHUTDOWN_WRITE_MS = 500;
+    // 待执行的保存任务（用于防抖），只在 EDT 上读写
     private ScheduledFuture<?> pendingSaveTask;
     // 观察者列表
     private final List<Runnable> uiListeners = new CopyOnWriteArrayList<>();
 
+    // ================= UI 通知合并 =================
+    // 每帧最多刷新一次 (60Hz)，中间状态直接丢弃，刷新时总是读取最新状态
+    private static final long UI_FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    private final AtomicBoolean uiDirty = new AtomicBoolean(false);
+    private final AtomicBoolean uiFlushScheduled = new AtomicBoolean(false);
+    private volatile long lastUiFlushNanos = 0;
+    private final AtomicLong uiNotifyRequested = new AtomicLong();
+    private final AtomicLong uiNotifyDelivered = new AtomicLong();
+
     public static NovelGlobalService getInstance() {
         return ((ComponentManager)ApplicationManager.getApplication()).getService(NovelGlobalService.class);
     }
@@ -48,84 +81,284 @@ public final class NovelGlobalService implements Disposable {
     // ================= 外部调用接口 =================
 
     public void ensureConnect() {
-        if (currentBook == null && !isLoading) {
+        NovelReaderState s = state.get();
+        if (s.book() == null && !s.loading()) {
             reload();
         }
     }
 
     public void reload() {
         String bookName = NovelConfig.getInstance().bookName;
-        String url = NovelConfig.getInstance().legadoUrl;
+        String url = NovelConfig.effectiveLegadoUrl();
+        NovelBookSource bookSource = NovelBookSource.forName(bookName);
 
-        if (bookName == null || bookName.isEmpty() || url == null || url.isEmpty()) {
+        // 本地 TXT 不需要 Legado 地址
+        if (bookName == null || bookName.isEmpty()
+                || (bookSource instanceof NovelLegadoSource && (url == null || url.isEmpty()))) {
             updateStatus("请在 Settings 中配置 Legado URL 和 书名", true);
             return;
         }
 
-        updateStatus("正在连接服务器获取《" + bookName + "》...", false);
+        // 先保存当前书的现场，之后的状态提示会覆盖正文
+        LegadoUtil.Book previousBook = state.get().book();
+        stashCurrentSession();
+        // 切换到读过的另一本书：不等书源查找，直接恢复现场，书籍信息随后在后台确认
+        NovelBookSession warmByName = takeWarmSession(bookName, previousBook);
+        if (warmByName == null) updateStatus("正在连接服务器获取《" + bookName + "》...", false);
 
-        scheduler.submit(() -> {
+        lanes.foreground().execute(() -> {
+            reloadLock.lock();
             try {
-                Optional<LegadoUtil.Book> bookOpt = LegadoUtil.findBookByName(bookName);
+                if (warmByName != null) {
+                    supersedePendingLoad();
+                    cancelPrefetches(i -> true);
+                    restoreSession(warmByName);
+                    checkBook(NovelBookSource.forBook(warmByName.book), warmByName.book, warmByName.chapterIndex);
+                    return;
+                }
+
+                Optional<LegadoUtil.Book> bookOpt = bookSource.find(bookName);
                 if (bookOpt.isPresent()) {
-                    currentBook = bookOpt.get();
-                    chapterList = LegadoUtil.getChapterList(currentBook);
+                    supersedePendingLoad();
+                    cancelPrefetches(i -> true);
+                    LegadoUtil.Book book = bookOpt.get();
+
+                    NovelBookSession warm;
+                    synchronized (sessions) {
+                        warm = sessions.remove(book.bookUrl());
+                    }
+                    // 书名与会话中的书名不完全相同（模糊匹配）时，查找后才认出是读过的书；同一本书重载则视为刷新
+                    if (warm != null && (previousBook == null || !previousBook.bookUrl().equals(book.bookUrl()))) {
+                        restoreSession(warm);
+                        checkBook(bookSource, warm.book, warm.chapterIndex);
+                        return;
+                    }
+
+                    NovelChapterTable chapters = bookSource.loadChapters(book);
 
                     // 1. 恢复进度 ( Legado 的 durChapterPos 就是章节内的字符偏移量 )
-                    currentChapterIndex = currentBook.durChapterIndex();
-                    currentTextIndex = currentBook.durChapterPos();
+                    int chapterIndex = book.durChapterIndex();
+                    int rawPos = book.durChapterPos();
+                    // 本地日志中有比服务器更新的进度（上次未同步成功）时以本地为准
+                    NovelProgressJournal.Entry local = NovelProgressJournal.getInstance().latest(book.bookUrl());
+                    if (local != null && local.time() > book.durChapterTime()) {
+                        chapterIndex = local.chapterIndex();
+                        rawPos = local.chapterPos();
+                    }
+
+                    chapterCache = new ConcurrentHashMap<>();
+                    searchIndex = new NovelSearchIndex();
+                    source = bookSource;
+                    int restoreIndex = chapterIndex;
+                    int restorePos = rawPos;
+                    state.updateAndGet(s -> s.withBook(book, chapters, restoreIndex, restorePos));
 
                     // 2. 加载内容
-                    loadChapterContent(currentChapterIndex);
+                    loadChapterContent(chapterIndex);
+                    buildSearchIndex();
+                    // 3. 书架快照可能落后手机端，后台确认进度和目录
+                    checkBook(bookSource, book, chapterIndex);
                 } else {
                     updateStatus("未找到书籍: " + bookName, true);
                 }
             } catch (Exception e) {
                 updateStatus("连接错误: " + e.getMessage(), true);
+            } finally {
+                reloadLock.unlock();
             }
         });
     }
 
-    public String getContent() { return currentContent; }
-    public int getIndex() { return currentTextIndex; }
+    /**
+     * 切换到另一本书（书架中的书名），读过的书会直接恢复
+     */
+    public void switchBook(String bookName) {
+        NovelConfig.getInstance().bookName = bookName;
+        reload();
+    }
+
+    /**
+     * 当前保持热状态的书（最近读过的在前，不含正在读的）
+     */
+    public List<LegadoUtil.Book> getWarmBooks() {
+        List<LegadoUtil.Book> books = new ArrayList<>();
+        synchronized (sessions) {
+            for (NovelBookSession session : sessions.values()) books.add(0, session.book());
+        }
+        return books;
+    }
+
+    public LegadoUtil.Book getCurrentBook() { return state.get().book(); }
+
+    private void stashCurrentSession() {
+        NovelReaderState current = state.get();
+        // 加载中或出错时没有完整的现场可保存
+        if (current.book() == null || current.chapters() == null || !current.hasText()) return;
+
+        forceSaveImmediately(current);
+        LegadoUtil.Book book = current.book();
+        NovelBookSession session = new NovelBookSession(book, current.chapters(), chapterCache, searchIndex, current.text(),
+                current.chapterIndex(), current.textIndex(), readingDirection);
+        synchronized (sessions) {
+            sessions.put(book.bookUrl(), session);
+            long total = 0;
+            for (NovelBookSession s : sessions.values()) total += s.estimateBytes();
+            Iterator<NovelBookSession> it = sessions.values().iterator();
+            while ((total > MAX_SESSION_BYTES || sessions.size() > MAX_SESSIONS) && it.hasNext()) {
+                total -= it.next().estimateBytes();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 按配置中的书名取出保持热状态的会话（Legado 按书名，本地 TXT 按文件路径）；
+     * 正在读的书不算，同一本书重载视为刷新
+     */
+    private NovelBookSession takeWarmSession(String bookName, LegadoUtil.Book current) {
+        String localUrl = NovelLocalTxtSource.accepts(bookName) ? NovelLocalTxtSource.bookUrlOf(bookName) : null;
+        synchronized (sessions) {
+            for (Iterator<NovelBookSession> it = sessions.values().iterator(); it.hasNext(); ) {
+                NovelBookSession session = it.next();
+                LegadoUtil.Book book = session.book;
+                boolean named = localUrl != null ? localUrl.equals(book.bookUrl())
+                        : !NovelLocalTxtSource.isLocal(book.bookUrl()) && bookName.equals(book.name());
+                if (!named || (current != null && current.bookUrl().equals(book.bookUrl()))) continue;
+                it.remove();
+                return session;
+            }
+        }
+        return null;
+    }
+
+    private void restoreSession(NovelBookSession session) {
+        chapterCache = session.chapterCache;
+        searchIndex = session.searchIndex;
+        source = NovelBookSource.forBook(session.book);
+        readingDirection = session.readingDirection;
+        state.set(new NovelReaderState(session.book, session.chapters, session.text, session.text.display(),
+                session.chapterIndex, session.textIndex, -1, false, false));
+        notifyUI();
+        prefetchAround(session.chapterIndex);
+        buildSearchIndex();
+    }
+
+    /**
+     * 打开书籍后在后台确认书源中的最新信息：手机端有更新的进度时跳过去，目录指纹变化时重新加载目录，
+     * 都没变时什么也不做。期间已换书时放弃；已翻到别的章节时不再跳转进度
+     * @param opened        打开时使用的书籍信息，也是状态中的书籍对象
+     * @param openedChapter 打开时定位到的章节
+     */
+    private void checkBook(NovelBookSource bookSource, LegadoUtil.Book opened, int openedChapter) {
+        bookSource.latest(opened).thenAcceptAsync(latestOpt -> {
+            if (latestOpt.isEmpty() || state.get().book() != opened) return;
+            LegadoUtil.Book latest = latestOpt.get();
+            reloadLock.lock();
+            try {
+                NovelReaderState s = state.get();
+                if (s.book() != opened || s.chapters() == null) return;
+
+                // 本地日志中更新的位置（打开后在这里读过）优先于手机端
+                NovelProgressJournal.Entry local = NovelProgressJournal.getInstance().latest(opened.bookUrl());
+                boolean newerProgress = latest.durChapterTime() > opened.durChapterTime()
+                        && (latest.durChapterIndex() != opened.durChapterIndex() || latest.durChapterPos() != opened.durChapterPos())
+                        && (local == null || latest.durChapterTime() > local.time())
+                        && s.chapterIndex() == openedChapter;
+                boolean tocChanged = !s.chapters().matches(latest);
+                if (!newerProgress && !tocChanged) return;
+
+                NovelChapterTable known = s.chapters();
+                NovelChapterTable chapters = tocChanged ? bookSource.loadChapters(latest) : known;
+                if (chapters.isEmpty()) return;
+                // 目录只是在末尾追加时，已加载的正文和索引仍然有效
+                boolean appended = chapters.size() >= known.size()
+                        && chapters.tailHash(known.size()) == known.tailHash(known.size());
+                if (!newerProgress && appended) {
+                    state.updateAndGet(cur -> cur.chapters() == known ? cur.withChapters(chapters) : cur);
+                    return;
+                }
+
+                int chapterIndex = newerProgress ? latest.durChapterIndex() : s.chapterIndex();
+                int rawPos = newerProgress ? latest.durChapterPos()
+                        : s.hasText() ? s.text().toRaw(s.textIndex()) : s.pendingRawPos();
+                int restoreIndex = Math.max(0, Math.min(chapterIndex, chapters.size() - 1));
+                // CAS：确认期间翻过章或换过书时不覆盖
+                NovelReaderState next = state.updateAndGet(cur -> cur.book() == opened
+                        && (!newerProgress || cur.chapterIndex() == openedChapter)
+                        ? cur.withBook(latest, chapters, restoreIndex, rawPos) : cur);
+                if (next.book() != latest) return;
+
+                supersedePendingLoad();
+                cancelPrefetches(i -> true);
+                if (!appended) {
+                    chapterCache = new ConcurrentHashMap<>();
+                    searchIndex = new NovelSearchIndex();
+                }
+                loadChapterContent(restoreIndex);
+                if (!appended) buildSearchIndex();
+            } catch (Exception ignored) {
+                // 确认失败时继续使用打开时的信息
+            } finally {
+                reloadLock.unlock();
+            }
+        }, lanes.foreground());
+    }
+
+    /**
+     * 本地 TXT 的目录在后台逐步建立，翻到已知目录末尾前取一次最新快照
+     */
+    private NovelChapterTable latestChapters() {
+        NovelReaderState s = state.get();
+        NovelChapterTable chapters = s.chapters();
+        if (s.book() == null || chapters == null) return chapters;
+        NovelChapterTable latest = source.latestChapters(s.book(), chapters);
+        // 期间已换书或已被更新时不覆盖
+        if (latest != chapters) state.updateAndGet(cur -> cur.chapters() == chapters ? cur.withChapters(latest) : cur);
+        return latest;
+    }
+
+    /**
+     * 当前状态的一致快照，绘制和滚动各读取一次即可
+     */
+    public NovelReaderState getState() { return state.get(); }
+
+    /**
+     * 预加载窗口中已缓存的章节数（供回归测试检查窗口外的章节是否被淘汰）
+     */
+    int getCachedChapterCount() { return chapterCache.size(); }
 
     /**
      * 核心交互入口：处理滚动
      */
     public void setIndex(int index) {
-        if (isLoading) return;
-        if (isError) { reload(); return; }
-
-        if (index >= currentContent.length()) {
-            // --- 下一章 ---
-            if (chapterList != null && currentChapterIndex < chapterList.size() - 1) {
-                forceSaveImmediately();
-                currentChapterIndex++;
-                currentTextIndex = 0; // 下一章从头开始
-                loadChapterContent(currentChapterIndex, false); // false = 不跳到末尾
-                debounceSaveProgress();
-            } else {
-                currentTextIndex = currentContent.length();
-                notifyUI();
-            }
-        } else if (index < 0) {
-            // --- 上一章 ---
-            if (chapterList != null && currentChapterIndex > 0) {
-                forceSaveImmediately();
-                currentChapterIndex--;
-                // ⚠️ 修复点：加载上一章，并标记加载完跳转到末尾
-                loadChapterContent(currentChapterIndex, true);
-                debounceSaveProgress();
-            } else {
-                currentTextIndex = 0;
-                notifyUI();
+        NovelReaderState s, next;
+        int step; // 1 = 下一章，-1 = 上一章，0 = 章节内
+        do {
+            s = state.get();
+            // 加载中也允许继续翻章，新的加载会取消尚未完成的旧请求
+            if (s.error()) { reload(); return; }
+
+            step = 0;
+            if (index >= s.content().length()) {
+                NovelChapterTable chapters = latestChapters();
+                if (chapters != null && s.chapterIndex() < chapters.size() - 1) step = 1;
+            } else if (index < 0) {
+                if (s.chapters() != null && s.chapterIndex() > 0) step = -1;
             }
+            // 已到全书首尾时 withIndex 会停在边界
+            next = step != 0 ? s.withChapterIndex(s.chapterIndex() + step) : s.withIndex(index);
+        } while (!state.compareAndSet(s, next));
+
+        if (step != 0) {
+            // 保存的是切章前的位置
+            forceSaveImmediately(s);
+            readingDirection = step;
+            // ⚠️ 修复点：上一章加载完跳转到末尾，下一章从头开始
+            loadChapterContent(next.chapterIndex(), step < 0);
         } else {
-            // --- 章节内 ---
-            this.currentTextIndex = index;
             notifyUI();
-            debounceSaveProgress();
         }
+        debounceSaveProgress();
     }
 
     // ================= 内部逻辑 =================
@@ -135,97 +368,284 @@ public final class NovelGlobalService implements Disposable {
     }
 
     /**
-     * 加载章节内容
+     * 加载章节内容：优先使用预加载窗口中的内容，未命中再走网络
      * @param chapterIndex 章节索引
      * @param jumpToEnd 加载完成后是否跳转到章节末尾（用于从下一章翻回来）
      */
     private void loadChapterContent(int chapterIndex, boolean jumpToEnd) {
-        if (currentBook == null || chapterList == null) return;
-        String title = (chapterIndex >= 0 && chapterIndex < chapterList.size())
-                ? chapterList.get(chapterIndex).title() : "";
+        NovelReaderState s = state.get();
+        LegadoUtil.Book book = s.book();
+        if (book == null || s.chapters() == null) return;
+        long generation = supersedePendingLoad();
+
+        NovelChapterText cached = chapterCache.get(chapterIndex);
+        NovelMetrics.hit(NovelMetrics.Ratio.MEMORY_CACHE, cached != null);
+        if (cached != null) {
+            // 命中预加载，直接在内存中切换，不出现“正在加载”
+            showChapter(book, chapterIndex, cached, jumpToEnd);
+            prefetchAround(chapterIndex);
+            return;
+        }
+
+        String title = s.chapters().title(chapterIndex);
 
         updateStatus("正在加载: " + title + "...", false);
 
-        scheduler.submit(() -> {
-            Optional<LegadoUtil.ChapterContent> contentOpt = LegadoUtil.getBookContent(currentBook, chapterIndex);
-            if (contentOpt.isPresent()) {
-                String text = contentOpt.get().content();
-                if (text == null) text = "本章无内容";
-
-                this.currentContent = text;
-                this.isError = false;
-                this.isLoading = false;
-
-                // ⚠️ 修复点：根据 flag 决定定位到开头还是末尾
-                if (jumpToEnd) {
-                    // 跳转到末尾（为了视觉连贯，通常定位到最后能显示的一屏位置，但简单起见先指到最后）
-                    // 渲染器会自动处理边界，这里设为 length 即可，或者 length - 1
-                    this.currentTextIndex = Math.max(0, text.length() - 1);
-                } else {
-                    this.currentTextIndex = 0;
+        NovelSearchIndex index = searchIndex;
+        CompletableFuture<Optional<LegadoUtil.ChapterContent>> inFlight = prefetching.get(chapterIndex);
+        NovelMetrics.hit(NovelMetrics.Ratio.PREFETCH, inFlight != null);
+        CompletableFuture<Optional<LegadoUtil.ChapterContent>> load = inFlight != null
+                ? inFlight.thenApply(c -> c) // 复用进行中的预加载，取消时不影响预加载本身
+                : source.loadContent(book, chapterIndex, lanes.foreground());
+        pendingLoad = load;
+
+        load.whenComplete((contentOpt, e) -> {
+            // 加载期间已切换到其他章节或书籍，丢弃结果
+            if (generation != loadGeneration.get() || book != state.get().book()) return;
+            if (e != null || contentOpt.isEmpty()) {
+                updateStatus("加载失败，滚动重试", true);
+                return;
+            }
+            // 规范化在响应线程上完成，结果与章节一起缓存
+            NovelChapterText text = normalize(contentOpt.get().content());
+            chapterCache.put(chapterIndex, text);
+            indexChapter(index, chapterIndex, text);
+
+            showChapter(book, chapterIndex, text, jumpToEnd);
+            prefetchAround(chapterIndex);
+        });
+    }
+
+    /**
+     * 作废当前进行中的前台加载（取消 HTTP 请求），返回新的加载代次
+     */
+    private long supersedePendingLoad() {
+        // 先递增代次再取消，保证被取消的回调看到的是新代次
+        long generation = loadGeneration.incrementAndGet();
+        CompletableFuture<?> previous = pendingLoad;
+        pendingLoad = null;
+        if (previous != null) previous.cancel(true);
+        return generation;
+    }
+
+    private static NovelChapterText normalize(String content) {
+        NovelChapterText text = NovelChapterText.of(content);
+        return text.length() == 0 ? NovelChapterText.of("本章无内容") : text;
+    }
+
+    /**
+     * 仍停留在 book 的第 chapterIndex 章时才切换到正文，否则说明已翻走，结果丢弃
+     */
+    private void showChapter(LegadoUtil.Book book, int chapterIndex, NovelChapterText chapter, boolean jumpToEnd) {
+        NovelReaderState shown = state.updateAndGet(cur -> cur.book() == book && cur.chapterIndex() == chapterIndex
+                ? cur.withText(chapter, jumpToEnd) : cur);
+        if (shown.text() == chapter) notifyUI();
+    }
+
+    /**
+     * 预加载窗口：沿阅读方向加载后 N 章，反方向保留前 M 章，
+     * 窗口外的章节从内存中移除
+     */
+    private void prefetchAround(int center) {
+        NovelReaderState s = state.get();
+        LegadoUtil.Book book = s.book();
+        if (book == null || s.chapters() == null) return;
+
+        NovelConfig config = NovelConfig.getInstance();
+        int ahead = Math.max(0, config.prefetchAhead);
+        int behind = Math.max(0, config.prefetchBehind);
+        int dir = readingDirection;
+
+        int low = dir > 0 ? center - behind : center - ahead;
+        int high = dir > 0 ? center + ahead : center + behind;
+        chapterCache.keySet().removeIf(i -> i < low || i > high);
+        cancelPrefetches(i -> i < low || i > high);
+
+        // 按距离由近到远、阅读方向优先的顺序提交
+        for (int d = 1; d <= Math.max(ahead, behind); d++) {
+            if (d <= ahead) prefetchChapter(book, center + d * dir);
+            if (d <= behind) prefetchChapter(book, center - d * dir);
+        }
+    }
+
+    private void prefetchChapter(LegadoUtil.Book book, int chapterIndex) {
+        NovelChapterTable chapters = latestChapters();
+        if (chapters == null || chapterIndex < 0 || chapterIndex >= chapters.size()) return;
+        if (chapterCache.containsKey(chapterIndex) || prefetching.containsKey(chapterIndex)) return;
+
+        NovelSearchIndex index = searchIndex;
+        CompletableFuture<Optional<LegadoUtil.ChapterContent>> future = source.loadContent(book, chapterIndex, lanes.prefetch());
+        if (prefetching.putIfAbsent(chapterIndex, future) != null) {
+            future.cancel(true);
+            return;
+        }
+        future.whenComplete((contentOpt, e) -> {
+            prefetching.remove(chapterIndex, future);
+            if (contentOpt == null || contentOpt.isEmpty() || book != state.get().book()) return;
+            NovelChapterText text = normalize(contentOpt.get().content());
+            // 请求期间窗口可能已移动，只保留仍在窗口内的章节；索引则总是加入
+            if (isInPrefetchWindow(chapterIndex)) chapterCache.put(chapterIndex, text);
+            indexChapter(index, chapterIndex, text);
+        });
+    }
+
+    // ================= 全文搜索 =================
+
+    /**
+     * 在当前书已索引的章节中查找 query（忽略大小写），按章节顺序返回最多 limit 处命中；
+     * 先由索引求出候选章节，只在候选章节中确认位置。候选章节可能要从磁盘读取，
+     * 因此在单独的搜索通道执行，不占用前台加载；提交新的搜索后旧的以 CancellationException 结束
+     */
+    public CompletableFuture<List<NovelSearchIndex.Hit>> search(String query, int limit) {
+        String q = query == null ? "" : query.strip();
+        NovelReaderState s = state.get();
+        LegadoUtil.Book book = s.book();
+        if (book == null || q.isEmpty()) return CompletableFuture.completedFuture(List.of());
+
+        long generation = searchGeneration.incrementAndGet();
+        NovelSearchIndex index = searchIndex;
+        NovelBookSource bookSource = source;
+        Map<Integer, NovelChapterText> cache = chapterCache;
+        return CompletableFuture.supplyAsync(() -> {
+            NovelChapterTable chapters = latestChapters();
+            if (chapters == null) return List.<NovelSearchIndex.Hit>of();
+            return index.search(q, limit, new NovelSearchIndex.Chapters() {
+                @Override
+                public String title(int chapterIndex) {
+                    return chapters.title(chapterIndex);
                 }
 
-                // 再次检查越界（防止 jumpToEnd 计算有误或 text 为空）
-                if (currentTextIndex >= text.length()) currentTextIndex = Math.max(0, text.length() - 1);
+                @Override
+                public NovelChapterText text(int chapterIndex) {
+                    if (generation != searchGeneration.get()) throw new CancellationException();
+                    NovelChapterText text = cache.get(chapterIndex);
+                    if (text != null) return text;
+                    // 先在原文中确认，哈希冲突带来的假候选不必规范化
+                    Optional<String> raw = bookSource.localContent(book, chapterIndex);
+                    if (raw.isEmpty() || !NovelSearchIndex.mayContain(raw.get(), q)) return null;
+                    return normalize(raw.get());
+                }
+            });
+        }, lanes.search());
+    }
 
-                notifyUI();
-            } else {
-                updateStatus("加载失败，滚动重试", true);
+    /**
+     * 当前书已加入索引的章节数
+     */
+    public int getIndexedChapterCount() { return searchIndex.chapterCount(); }
+
+    /**
+     * 跳转到搜索结果：切到命中所在章节并定位到命中处；期间已换书则忽略
+     */
+    public void jumpTo(LegadoUtil.Book book, NovelSearchIndex.Hit hit) {
+        NovelReaderState s, next;
+        do {
+            s = state.get();
+            if (s.book() != book) return;
+            next = s.withChapterIndex(hit.chapterIndex(), hit.rawOffset());
+        } while (!state.compareAndSet(s, next));
+
+        forceSaveImmediately(s);
+        readingDirection = 1;
+        loadChapterContent(hit.chapterIndex(), false);
+        debounceSaveProgress();
+    }
+
+    private void indexChapter(NovelSearchIndex index, int chapterIndex, NovelChapterText text) {
+        lanes.index().execute(() -> index.add(chapterIndex, text));
+    }
+
+    /**
+     * 后台把已缓存的章节全部加入索引（见 {@link NovelBookSource#cachedContent}），已索引的跳过；
+     * 本地 TXT 不在这里逐章解码，只有读过、预读过的章节随加载进入索引。
+     * 换书后停止，回到这本书时重新检查并继续补全
+     */
+    private void buildSearchIndex() {
+        NovelSearchIndex index = searchIndex;
+        LegadoUtil.Book book = state.get().book();
+        NovelBookSource bookSource = source;
+        if (book == null) return;
+        lanes.index().execute(() -> {
+            // 目录可能仍在后台建立，每章都取一次最新大小
+            for (int i = 0; searchIndex == index && !Thread.currentThread().isInterrupted(); i++) {
+                NovelChapterTable chapters = latestChapters();
+                if (chapters == null || i >= chapters.size()) return;
+                if (index.contains(i)) continue;
+                Optional<String> content = bookSource.cachedContent(book, i);
+                if (content.isPresent()) index.add(i, normalize(content.get()));
             }
         });
     }
 
+    private void cancelPrefetches(IntPredicate filter) {
+        prefetching.entrySet().removeIf(entry -> {
+            if (!filter.test(entry.getKey())) return false;
+            entry.getValue().cancel(true);
+            return true;
+        });
+    }
+
+    private boolean isInPrefetchWindow(int chapterIndex) {
+        NovelConfig config = NovelConfig.getInstance();
+        int offset = (chapterIndex - state.get().chapterIndex()) * readingDirection;
+        return offset <= config.prefetchAhead && -offset <= config.prefetchBehind;
+    }
+
     private void updateStatus(String msg, boolean error) {
-        this.currentContent = msg;
-        this.isLoading = !error;
-        this.isError = error;
-        // status 更新时归零 index，避免渲染越界
-        if (error) this.currentTextIndex = 0;
+        state.updateAndGet(s -> s.withStatus(msg, error));
         notifyUI();
     }
 
     /**
      * 防抖保存策略：
-     * 如果用户一直在滚动，不发送请求。
-     * 当用户停止滚动 2 秒后，发送请求。
+     * 如果用户一直在滚动，不写入进度。
+     * 当用户停止滚动 2 秒后，写入进度日志，由日志负责同步到服务器。
      */
     private void debounceSaveProgress() {
-        if (currentBook == null) return;
+        if (state.get().book() == null) return;
 
         // 如果有之前没执行的任务，取消它
         if (pendingSaveTask != null && !pendingSaveTask.isDone()) {
             pendingSaveTask.cancel(false);
         }
 
-        // 安排一个新的任务，2秒后执行
-        pendingSaveTask = scheduler.schedule(this::doSaveNetworkRequest, 2, TimeUnit.SECONDS);
+        // 安排一个新的任务，2秒后交给写入通道执行；计时器线程本身不做 IO
+        pendingSaveTask = AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                () -> lanes.write().execute(this::doSaveProgress), 2, TimeUnit.SECONDS);
     }
 
     /**
      * 强制立即保存（用于切章、关闭IDE等场景）
      */
-    private void forceSaveImmediately() {
+    private void forceSaveImmediately(NovelReaderState s) {
         if (pendingSaveTask != null && !pendingSaveTask.isDone()) {
             pendingSaveTask.cancel(false);
         }
-        // 提交到线程池立即执行
-        scheduler.submit(this::doSaveNetworkRequest);
+        // 保存调用方传入的快照（切章前的位置），写日志交给写入通道
+        Runnable save = snapshotProgress(s);
+        if (save != null) lanes.write().execute(save);
+    }
+
+    private void doSaveProgress() {
+        Runnable save = snapshotProgress(state.get());
+        if (save != null) save.run();
     }
 
     /**
-     * 实际执行网络请求的方法
-     * 注意：必须读取当前最新的状态值，不能传参(闭包问题)
+     * 快照中的阅读位置转成写入进度日志的任务；无有效位置时返回 null
      */
-    private void doSaveNetworkRequest() {
-        if (currentBook == null || chapterList == null) return;
-
-        // 快照当前状态，防止发送过程中被修改
-        int cIdx = currentChapterIndex;
-        int tIdx = currentTextIndex;
-        String title = (cIdx >= 0 && cIdx < chapterList.size()) ? chapterList.get(cIdx).title() : "";
-
-        // Legado API: durChapterPos 对应章节内字符偏移
-        LegadoUtil.saveProgress(currentBook, cIdx, tIdx, title);
+    private static Runnable snapshotProgress(NovelReaderState s) {
+        // 加载中或出错时 content 只是状态提示，不是正文位置
+        LegadoUtil.Book book = s.book();
+        NovelChapterTable chapters = s.chapters();
+        if (book == null || chapters == null || !s.hasText()) return null;
+
+        int cIdx = s.chapterIndex();
+        // Legado API: durChapterPos 对应原文中的字符偏移，需从显示偏移换算回去
+        int tIdx = s.text().toRaw(s.textIndex());
+        String title = chapters.title(cIdx);
+
+        return () -> NovelProgressJournal.getInstance().record(book, cIdx, tIdx, title);
     }
 
     // ================= UI通知 =================
@@ -233,34 +653,52 @@ public final class NovelGlobalService implements Disposable {
     public void addUiListener(Runnable listener) { uiListeners.add(listener); }
     public void removeUiListener(Runnable listener) { uiListeners.remove(listener); }
 
+    public long getUiNotifyRequested() { return uiNotifyRequested.get(); }
+    public long getUiNotifyDelivered() { return uiNotifyDelivered.get(); }
+    public long getUiNotifyDropped() { return uiNotifyRequested.get() - uiNotifyDelivered.get(); }
+
+    /**
+     * 标记 UI 需要刷新；同一帧内的多次调用只会触发一次刷新
+     */
     private void notifyUI() {
-        ApplicationManager.getApplication().invokeLater(() -> {
-            for (Runnable listener : uiListeners) listener.run();
-        });
+        uiNotifyRequested.incrementAndGet();
+        uiDirty.set(true);
+        if (!uiFlushScheduled.compareAndSet(false, true)) return;
+
+        long delay = UI_FRAME_NANOS - (System.nanoTime() - lastUiFlushNanos);
+        if (delay <= 0) {
+            ApplicationManager.getApplication().invokeLater(this::flushUI);
+        } else {
+            // 只是计时，不占用任何执行通道
+            AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                    () -> ApplicationManager.getApplication().invokeLater(this::flushUI),
+                    delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushUI() {
+        // 先清除调度标记，之后到达的通知会安排下一帧
+        uiFlushScheduled.set(false);
+        if (!uiDirty.getAndSet(false)) return;
+
+        lastUiFlushNanos = System.nanoTime();
+        uiNotifyDelivered.incrementAndGet();
+        for (Runnable listener : uiListeners) listener.run();
     }
 
     @Override
     public void dispose() {
-        // 1. 立即强制保存
-        forceSaveImmediately();
-
-        // 2. 优雅关闭线程池
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-        }
+        // 1. 进度直接写入本地日志，未同步的部分下次启动时继续推送，无需等待网络；
+        //    最后一次保存排在写入通道已排队的旧快照之后，日志中最新的一条才是退出时的位置
+        if (pendingSaveTask != null) pendingSaveTask.cancel(false);
+        lanes.write().execute(this::doSaveProgress);
 
+        // 2. 关闭执行通道，写入通道排空后才中断
+        lanes.shutdown(SHUTDOWN_WRITE_MS);
+        supersedePendingLoad();
+        cancelPrefetches(i -> true);
+
+        // 激活过的 Handler 以本服务为父 Disposable，已先于这里释放
         uiListeners.clear();
-        for (Editor editor : EditorFactory.getInstance().getAllEditors()) {
-            Disposable handler = editor.getUserData(HANDLER_KEY);
-            if (handler != null) {
-                handler.dispose();
-                editor.putUserData(HANDLER_KEY, null);
-            }
-        }
     }
 }
\ No newline at end of file
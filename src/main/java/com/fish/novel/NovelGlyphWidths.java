@@ -0,0 +1,54 @@
+package com.fish.novel;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字宽缓存：每个 (字体, 渲染上下文) 一张覆盖 BMP 的 short[] 表，按需填充，
+ * CJK 统一表意文字按等宽处理，只测量一次。测量热路径上只剩数组访问
+ */
+public final class NovelGlyphWidths {
+
+    private static final int MAX_FONTS = 16;
+    private static final Map<Key, NovelGlyphWidths> CACHE = new ConcurrentHashMap<>();
+
+    private record Key(Font font, FontRenderContext frc) {}
+
+    private final FontMetrics metrics;
+    // 存 宽度 + 1，0 表示尚未测量；多线程下重复写入同一值，无需加锁
+    private final short[] widths = new short[Character.MAX_VALUE + 1];
+    private final int cjkWidth;
+
+    private NovelGlyphWidths(FontMetrics metrics) {
+        this.metrics = metrics;
+        this.cjkWidth = metrics.charWidth('中');
+    }
+
+    public static NovelGlyphWidths of(FontMetrics metrics) {
+        Key key = new Key(metrics.getFont(), metrics.getFontRenderContext());
+        NovelGlyphWidths cached = CACHE.get(key);
+        if (cached != null) return cached;
+        // 字体种类很少，超出上限直接清空即可
+        if (CACHE.size() >= MAX_FONTS) CACHE.clear();
+        return CACHE.computeIfAbsent(key, k -> new NovelGlyphWidths(metrics));
+    }
+
+    public int charWidth(char c) {
+        if (isUniformCjk(c)) return cjkWidth;
+        int w = widths[c];
+        if (w == 0) {
+            w = Math.min(Short.MAX_VALUE, metrics.charWidth(c) + 1);
+            widths[c] = (short) w;
+        }
+        return w - 1;
+    }
+
+    /**
+     * CJK 统一表意文字（含扩展 A）在常见字体中宽度一致
+     */
+    private static boolean isUniformCjk(char c) {
+        return (c >= '一' && c <= '鿿') || (c >= '㐀' && c <= '䶿');
+    }
+}
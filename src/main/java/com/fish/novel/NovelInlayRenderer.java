@@ -11,17 +11,69 @@ import com.intellij.openapi.editor.markup.TextAttributes;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NovelInlayRenderer implements EditorCustomElementRenderer {
 
-    private final String rawText;
+    // 滚动时原地替换，只在 EDT 上读写
+    private String rawText;
+    // 非 null 时 rawText 已按行表切好，直接用该字体绘制，无需再测量
+    private Font layoutFont;
+    // 行表测量时的渲染上下文；按它排版，字形宽度与切行时的 FontMetrics 一致
+    private FontRenderContext layoutFrc;
+
+    // ================= 绘制缓存 =================
+    // 光标闪烁等无关重绘时直接复用，不再取字体、查高亮、排版
+    // 已排版的可见行：文本、字体、渲染上下文都不变时复用
+    private GlyphVector glyphs;
+    private String glyphText;
+    private Font glyphFont;
+    private FontRenderContext glyphFrc;
+    private int glyphAscent;
+    private int glyphHeight;
+    // 上下文颜色：offset、文档版本、配色方案、高亮器都不变时复用
+    private Color color;
+    private int colorOffset = -1;
+    private long colorStamp = -1;
+    private Object colorScheme;
+    private Object colorHighlighter;
+
+    // 字体回退结果 (编辑器字体, 样本中出现的全部文字) -> 实际使用的字体，跨编辑器共享
+    private record FontKey(Font codeFont, Set<Character.UnicodeScript> scripts) {}
+    private static final Map<FontKey, Font> smartFonts = new ConcurrentHashMap<>();
+    private static final int MAX_SMART_FONTS = 64;
 
     // 统一配置
     public static final int VIEWPORT_WIDTH = 600;
     public static final int PADDING_LEFT = 10;
 
     public NovelInlayRenderer(String text) {
+        this(text, null, null);
+    }
+
+    public NovelInlayRenderer(String text, Font layoutFont, FontRenderContext layoutFrc) {
+        this.rawText = text;
+        this.layoutFont = layoutFont;
+        this.layoutFrc = layoutFrc;
+    }
+
+    /**
+     * 替换显示的文本窗口，宽度固定，调用方只需 repaint
+     * @return 内容是否发生变化
+     */
+    public boolean setText(String text, Font layoutFont, FontRenderContext layoutFrc) {
+        if (text.equals(rawText) && Objects.equals(layoutFont, this.layoutFont)
+                && Objects.equals(layoutFrc, this.layoutFrc)) return false;
         this.rawText = text;
+        this.layoutFont = layoutFont;
+        this.layoutFrc = layoutFrc;
+        return true;
     }
 
     @Override
@@ -36,28 +88,81 @@ public class NovelInlayRenderer implements EditorCustomElementRenderer {
 
     @Override
     public void paint(@NotNull Inlay inlay, @NotNull Graphics g, @NotNull Rectangle targetRegion, @NotNull TextAttributes textAttributes) {
+        NovelEvents.Paint event = new NovelEvents.Paint();
+        event.begin();
+        long started = NovelMetrics.start();
         Editor editor = inlay.getEditor();
-        Font font = getSmartFont(editor, rawText);
+        Font font = layoutFont != null ? layoutFont : getSmartFont(editor, rawText);
         g.setFont(font);
+        g.setColor(getContextColor(editor, inlay.getOffset()));
 
-        Color color = getContextColor(editor, inlay.getOffset());
-        g.setColor(color);
-
+        int drawn;
         if (g instanceof Graphics2D g2d) {
             g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
             g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+
+            FontRenderContext frc = g2d.getFontRenderContext();
+            if (glyphs == null || !rawText.equals(glyphText) || !font.equals(glyphFont) || !frc.equals(glyphFrc)) {
+                shape(g2d, font, frc);
+            }
+            drawn = glyphs.getNumGlyphs();
+            int baseline = (int) (targetRegion.y + glyphAscent + (targetRegion.height - glyphHeight) / 2.0);
+            g2d.drawGlyphVector(glyphs, targetRegion.x + PADDING_LEFT, baseline);
+        } else {
+            FontMetrics metrics = g.getFontMetrics(font);
+            String textToDraw = fitText(metrics);
+            drawn = textToDraw.length();
+            int baseline = (int) (targetRegion.y + metrics.getAscent() + (targetRegion.height - metrics.getHeight()) / 2.0);
+            g.drawString(textToDraw, targetRegion.x + PADDING_LEFT, baseline);
         }
 
-        FontMetrics metrics = g.getFontMetrics(font);
-        int baseline = (int) (targetRegion.y + metrics.getAscent() + (targetRegion.height - metrics.getHeight()) / 2.0);
+        NovelMetrics.stop(NovelMetrics.Timer.PAINT, started);
+        event.end();
+        if (event.shouldCommit()) {
+            event.chars = drawn;
+            event.commit();
+        }
+    }
 
-        // 核心：计算能画多少字
-        int availableWidth = VIEWPORT_WIDTH - PADDING_LEFT;
-        int fitCount = calculateFittingCount(rawText, metrics, availableWidth);
+    /**
+     * 排版可见行并缓存；glyphText 记录的是 rawText（缓存键），绘制的字形只含截断后的部分。
+     * 有行表时按测量行表的渲染上下文排版：绘制用的 frc 开了小数字宽，整数字宽切出的行按它排版会变宽
+     */
+    private void shape(Graphics2D g2d, Font font, FontRenderContext frc) {
+        FontMetrics metrics = g2d.getFontMetrics(font);
+        String text = fitText(metrics);
+        GlyphVector shaped = font.createGlyphVector(layoutFont != null && layoutFrc != null ? layoutFrc : frc, text);
+        glyphs = clip(font, shaped, text);
+        glyphText = rawText;
+        glyphFont = font;
+        glyphFrc = frc;
+        glyphAscent = metrics.getAscent();
+        glyphHeight = metrics.getHeight();
+    }
 
-        String textToDraw = (fitCount < rawText.length()) ? rawText.substring(0, fitCount) : rawText;
+    /**
+     * 兜底：实际字形仍超出可用宽度时（缺少测量上下文、字体回退等），在第一个越界的字形前截断
+     */
+    private static GlyphVector clip(Font font, GlyphVector shaped, String text) {
+        int limit = VIEWPORT_WIDTH - PADDING_LEFT;
+        int n = shaped.getNumGlyphs();
+        if (shaped.getGlyphPosition(n).getX() <= limit) return shaped;
+        for (int i = 0; i < n; i++) {
+            if (shaped.getGlyphPosition(i + 1).getX() > limit) {
+                int end = shaped.getGlyphCharIndex(i);
+                return font.createGlyphVector(shaped.getFontRenderContext(), text.substring(0, Math.max(0, end)));
+            }
+        }
+        return shaped;
+    }
 
-        g.drawString(textToDraw, targetRegion.x + PADDING_LEFT, baseline);
+    /**
+     * 有行表时 rawText 恰好是一行；否则按宽度截断
+     */
+    private String fitText(FontMetrics metrics) {
+        if (layoutFont != null) return rawText;
+        int fitCount = calculateFittingCount(rawText, metrics, VIEWPORT_WIDTH - PADDING_LEFT);
+        return fitCount < rawText.length() ? rawText.substring(0, fitCount) : rawText;
     }
 
     /**
@@ -65,11 +170,44 @@ public class NovelInlayRenderer implements EditorCustomElementRenderer {
      */
     public static int calculateFittingCount(String text, FontMetrics metrics, int widthLimit) {
         if (text == null || text.isEmpty()) return 0;
+        return calculateFittingCount(text, 0, text.length(), metrics, widthLimit);
+    }
+
+    /**
+     * 从 from 开始（不超过 to）能放进 widthLimit 的字符数，避免为测量而截取子串
+     */
+    public static int calculateFittingCount(CharSequence text, int from, int to, FontMetrics metrics, int widthLimit) {
+        NovelEvents.Measure event = new NovelEvents.Measure();
+        event.begin();
+        long started = NovelMetrics.start();
+        NovelGlyphWidths widths = NovelGlyphWidths.of(metrics);
         int currentWidth = 0;
         int count = 0;
-        for (int i = 0; i < text.length(); i++) {
+        for (int i = from; i < to; i++) {
             char c = text.charAt(i);
-            int charW = metrics.charWidth(c);
+            int charW = widths.charWidth(c);
+            if (currentWidth + charW > widthLimit) break;
+            currentWidth += charW;
+            count++;
+        }
+        NovelMetrics.stop(NovelMetrics.Timer.MEASURE, started);
+        event.end();
+        if (event.shouldCommit()) {
+            event.count = count;
+            event.commit();
+        }
+        return count;
+    }
+
+    /**
+     * 倒序版本：以 end 结尾（不含 end）往前能放进 widthLimit 的字符数，最多 maxCount 个，用于上翻
+     */
+    public static int calculateFittingCountBackward(CharSequence text, int end, FontMetrics metrics, int widthLimit, int maxCount) {
+        NovelGlyphWidths widths = NovelGlyphWidths.of(metrics);
+        int currentWidth = 0;
+        int count = 0;
+        for (int i = end - 1; i >= 0 && count < maxCount; i--) {
+            int charW = widths.charWidth(text.charAt(i));
             if (currentWidth + charW > widthLimit) break;
             currentWidth += charW;
             count++;
@@ -77,17 +215,67 @@ public class NovelInlayRenderer implements EditorCustomElementRenderer {
         return count;
     }
 
+    /**
+     * 编辑器字体能显示正文时直接使用，否则回退到 Dialog；
+     * 结果按 (编辑器字体, 样本中出现的全部文字) 缓存，同一组文字只调用一次 canDisplayUpTo。
+     * 只看第一种文字不够：纯英文行缓存了编辑器字体后，"Chapter 第一章" 这样的混排行会命中它，汉字显示成方框
+     */
     public static Font getSmartFont(Editor editor, String sampleText) {
         Font codeFont = editor.getColorsScheme().getFont(EditorFontType.PLAIN);
         String testStr = (sampleText == null || sampleText.length() < 2) ? "测试" : sampleText;
-        if (codeFont.canDisplayUpTo(testStr) == -1) {
-            return codeFont;
-        } else {
-            return new Font("Dialog", Font.PLAIN, codeFont.getSize());
+        FontKey key = new FontKey(codeFont, scriptsOf(testStr));
+        Font cached = smartFonts.get(key);
+        if (cached != null) return cached;
+
+        Font font = codeFont.canDisplayUpTo(testStr) == -1 ? codeFont : new Font("Dialog", Font.PLAIN, codeFont.getSize());
+        if (smartFonts.size() >= MAX_SMART_FONTS) smartFonts.clear();
+        smartFonts.put(key, font);
+        return font;
+    }
+
+    /**
+     * 样本中出现的全部文字（汉字、拉丁字母等）。ASCII 标点数字任何编辑器字体都有，不计入；
+     * 全角标点等非 ASCII 的通用字符编辑器字体未必有，计为 COMMON
+     */
+    private static Set<Character.UnicodeScript> scriptsOf(String text) {
+        Set<Character.UnicodeScript> scripts = EnumSet.noneOf(Character.UnicodeScript.class);
+        Character.UnicodeScript last = null;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            Character.UnicodeScript script;
+            if (cp < 0x80) {
+                if (!Character.isLetter(cp)) continue;
+                script = Character.UnicodeScript.LATIN;
+            } else {
+                script = Character.UnicodeScript.of(cp);
+            }
+            // 连续的同一种文字只查一次集合
+            if (script != last) {
+                scripts.add(script);
+                last = script;
+            }
         }
+        return scripts;
     }
 
     private Color getContextColor(Editor editor, int offset) {
+        long stamp = editor.getDocument().getModificationStamp();
+        Object scheme = editor.getColorsScheme();
+        Object highlighter = editor instanceof EditorEx ex ? ex.getHighlighter() : null;
+        if (color != null && offset == colorOffset && stamp == colorStamp
+                && scheme == colorScheme && highlighter == colorHighlighter) {
+            return color;
+        }
+        color = resolveContextColor(editor, offset);
+        colorOffset = offset;
+        colorStamp = stamp;
+        colorScheme = scheme;
+        colorHighlighter = highlighter;
+        return color;
+    }
+
+    private static Color resolveContextColor(Editor editor, int offset) {
         try {
             if (editor instanceof EditorEx ex) {
                 EditorHighlighter highlighter = ex.getHighlighter();
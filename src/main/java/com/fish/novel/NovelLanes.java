@@ -0,0 +1,65 @@
+package com.fish.novel;
+
+import java.util.concurrent.*;
+
+/**
+ * 互相独立的执行通道，各自在少量虚拟线程上按提交顺序执行，互不排队：
+ * <ul>
+ *     <li>{@link #foreground()}：打开书籍、当前可见章节的加载，延迟敏感</li>
+ *     <li>{@link #write()}：阅读进度写入，单线程保证先后顺序</li>
+ *     <li>{@link #prefetch()}：后台预读，并发受限，不会挤占前台</li>
+ *     <li>{@link #index()}：建立搜索索引，单线程，最低优先级</li>
+ *     <li>{@link #search()}：全文搜索时读取和确认候选章节，单线程，不与索引的整书遍历排队</li>
+ * </ul>
+ * 慢速的保存或大量预读都不会挡在下一章的加载前面
+ */
+final class NovelLanes {
+
+    private static final int FOREGROUND_THREADS = 2;
+    private static final int WRITE_THREADS = 1;
+    private static final int PREFETCH_THREADS = 2;
+    private static final int INDEX_THREADS = 1;
+    private static final int SEARCH_THREADS = 1;
+
+    private final ExecutorService foreground = lane("novel-foreground-", FOREGROUND_THREADS);
+    private final ExecutorService write = lane("novel-write-", WRITE_THREADS);
+    private final ExecutorService prefetch = lane("novel-prefetch-", PREFETCH_THREADS);
+    private final ExecutorService index = lane("novel-index-", INDEX_THREADS);
+    private final ExecutorService search = lane("novel-search-", SEARCH_THREADS);
+
+    /**
+     * 固定数量的虚拟线程 + 无界 FIFO 队列：并发有上限，任务不会被拒绝
+     */
+    private static ExecutorService lane(String name, int threads) {
+        ThreadFactory factory = Thread.ofVirtual().name(name, 0).factory();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), factory);
+    }
+
+    ExecutorService foreground() { return foreground; }
+
+    ExecutorService write() { return write; }
+
+    ExecutorService prefetch() { return prefetch; }
+
+    ExecutorService index() { return index; }
+
+    ExecutorService search() { return search; }
+
+    /**
+     * 读取类通道直接中断；写入通道先停止接收新任务，把已排队的进度按顺序写完（最多等 writeTimeoutMs）再中断。
+     * 写入中途被中断会让 FileChannel 以 ClosedByInterruptException 关闭，因此不能直接 shutdownNow
+     */
+    void shutdown(long writeTimeoutMs) {
+        foreground.shutdownNow();
+        prefetch.shutdownNow();
+        index.shutdownNow();
+        search.shutdownNow();
+        write.shutdown();
+        try {
+            write.awaitTermination(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write.shutdownNow();
+    }
+}
@@ -0,0 +1,62 @@
+package com.fish.novel;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Legado Web 服务书源：书架查找走 {@link NovelBookshelf} 缓存，
+ * 目录和正文优先使用 {@link NovelChapterStore} 中的本地副本
+ */
+final class NovelLegadoSource implements NovelBookSource {
+
+    static final NovelLegadoSource INSTANCE = new NovelLegadoSource();
+
+    private NovelLegadoSource() {}
+
+    @Override
+    public Optional<LegadoUtil.Book> find(String name) {
+        return NovelBookshelf.getInstance().find(name);
+    }
+
+    @Override
+    public CompletableFuture<Optional<LegadoUtil.Book>> latest(LegadoUtil.Book book) {
+        return NovelBookshelf.getInstance().latest(book);
+    }
+
+    /**
+     * 优先使用本地保存的目录；书架信息（章节数、最新章节）与之不一致时才重新下载，
+     * 新目录只是在末尾追加了章节时，只追加保存新增部分
+     */
+    @Override
+    public NovelChapterTable loadChapters(LegadoUtil.Book book) {
+        NovelChapterStore store = NovelChapterStore.getInstance();
+        NovelChapterTable local = store.loadToc(book.bookUrl());
+        if (local != null && local.matches(book)) return local;
+
+        NovelChapterTable fresh = LegadoUtil.getChapterList(book);
+        if (fresh.isEmpty()) {
+            // 下载失败时退回本地目录，支持离线阅读已缓存的章节
+            return local != null ? local : fresh;
+        }
+        if (local != null && !local.isEmpty() && fresh.size() >= local.size()
+                && fresh.tailHash(local.size()) == local.tailHash(local.size())) {
+            if (fresh.size() == local.size()) return local;
+            store.saveToc(book.bookUrl(), fresh, local.size());
+            return local.append(fresh, local.size());
+        }
+        if (local != null) store.removeBook(book.bookUrl());
+        store.saveToc(book.bookUrl(), fresh, 0);
+        return fresh;
+    }
+
+    @Override
+    public CompletableFuture<Optional<LegadoUtil.ChapterContent>> loadContent(LegadoUtil.Book book, int index, Executor executor) {
+        return LegadoUtil.getBookContentAsync(book, index, executor);
+    }
+
+    @Override
+    public Optional<String> localContent(LegadoUtil.Book book, int index) {
+        return NovelChapterStore.getInstance().peek(book.bookUrl(), index);
+    }
+}
@@ -0,0 +1,73 @@
+package com.fish.novel;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.util.Arrays;
+
+/**
+ * 章节行表：按 (章节内容, 字体, 可用宽度) 一次性把正文切成若干显示行，
+ * lineStarts[i] 为第 i 行起始字符偏移。滚动只需行号加减，渲染直接取行区间
+ */
+public final class NovelLineLayout {
+
+    private final String text;
+    private final Font codeFont;   // 编辑器方案字体，用于判断是否失效
+    private final Font font;       // 实际用于测量和绘制的字体
+    private final FontRenderContext frc; // 测量时的渲染上下文，绘制时按它排版，字宽与切行一致
+    private final int width;
+    private final int[] lineStarts;
+
+    private NovelLineLayout(String text, Font codeFont, Font font, FontRenderContext frc, int width, int[] lineStarts) {
+        this.text = text;
+        this.codeFont = codeFont;
+        this.font = font;
+        this.frc = frc;
+        this.width = width;
+        this.lineStarts = lineStarts;
+    }
+
+    /**
+     * 逐行贪心切分，规则与 {@link NovelInlayRenderer#calculateFittingCount} 一致，
+     * 较耗时，应在后台线程调用
+     */
+    public static NovelLineLayout compute(String text, Font codeFont, Font font, FontMetrics metrics, int width) {
+        int[] starts = new int[Math.max(16, text.length() / 16)];
+        int count = 0;
+        int pos = 0;
+        int len = text.length();
+        do {
+            if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = pos;
+            // 超宽字符也至少占一个位置，防止死循环
+            pos += Math.max(1, NovelInlayRenderer.calculateFittingCount(text, pos, len, metrics, width));
+        } while (pos < len);
+        return new NovelLineLayout(text, codeFont, font, metrics.getFontRenderContext(), width, Arrays.copyOf(starts, count));
+    }
+
+    /**
+     * 同一章节对象、同一编辑器字体、同一宽度下可以复用
+     */
+    public boolean matches(String text, Font codeFont, int width) {
+        return this.text == text && this.width == width && this.codeFont.equals(codeFont);
+    }
+
+    public Font font() { return font; }
+
+    public FontRenderContext frc() { return frc; }
+
+    public int lineCount() { return lineStarts.length; }
+
+    public int lineStart(int line) { return lineStarts[line]; }
+
+    public int lineEnd(int line) {
+        return line + 1 < lineStarts.length ? lineStarts[line + 1] : text.length();
+    }
+
+    /**
+     * 字符偏移所在的行号（二分查找）
+     */
+    public int lineOf(int offset) {
+        int i = Arrays.binarySearch(lineStarts, Math.max(0, offset));
+        return i >= 0 ? i : -i - 2;
+    }
+}
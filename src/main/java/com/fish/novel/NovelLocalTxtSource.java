@@ -0,0 +1,367 @@
+package com.fish.novel;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ComponentManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * 本地 TXT 书源：配置的书名是 .txt 文件路径时使用。
+ * 文件整体内存映射，不读入堆；章节目录在后台按"第…章"标题逐块建立，
+ * 打开时只扫描到第一章结束即可显示，读取正文时只解码当前章节的字节区间。
+ * 支持 UTF-8（可带 BOM）和 GBK/GB18030
+ */
+@Service(Service.Level.APP)
+public final class NovelLocalTxtSource implements NovelBookSource, Disposable {
+
+    static final String URL_PREFIX = "file:";
+
+    // 后台每次扫描的字节数，扫描之间释放锁，前台读取不会被长时间阻塞
+    private static final int SCAN_CHUNK = 4 * 1024 * 1024;
+    // 前台等待某一章时的扫描步长，找到所需章节即停
+    private static final int FOREGROUND_STEP = 1024 * 1024;
+    // 超过该长度仍没有章节标题时按行切分，避免一次解码过大的"章节"
+    private static final int MAX_CHAPTER_BYTES = 256 * 1024;
+    private static final int MAX_HEADING_BYTES = 160;
+    private static final int MAX_OPEN_BOOKS = 4;
+    private static final Pattern HEADING = Pattern.compile(
+            "第[0-9０-９零〇一二两三四五六七八九十百千万]+[章回节卷集部篇]([\\s：:].{0,40}|[^，。！？,.!?]{0,30})");
+
+    // bookUrl -> 已打开的文件，按访问顺序淘汰
+    private final LinkedHashMap<String, TxtBook> books = new LinkedHashMap<>(8, 0.75f, true);
+
+    public static NovelLocalTxtSource getInstance() {
+        return ((ComponentManager)ApplicationManager.getApplication()).getService(NovelLocalTxtSource.class);
+    }
+
+    /**
+     * 书名是否指向一个存在的 .txt 文件
+     */
+    static boolean accepts(String name) {
+        if (name == null || !name.toLowerCase(Locale.ROOT).endsWith(".txt")) return false;
+        try {
+            return Files.isRegularFile(Paths.get(name));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    static boolean isLocal(String bookUrl) {
+        return bookUrl != null && bookUrl.startsWith(URL_PREFIX);
+    }
+
+    /**
+     * 本地书籍对应的文件路径（即配置中的书名）
+     */
+    static String pathOf(LegadoUtil.Book book) {
+        return book.bookUrl().substring(URL_PREFIX.length());
+    }
+
+    /**
+     * 配置中的书名（文件路径）对应的 bookUrl
+     */
+    static String bookUrlOf(String name) {
+        return URL_PREFIX + Paths.get(name).toAbsolutePath().normalize();
+    }
+
+    // ================= NovelBookSource =================
+
+    @Override
+    public Optional<LegadoUtil.Book> find(String name) {
+        Path path = Paths.get(name).toAbsolutePath().normalize();
+        String bookUrl = bookUrlOf(name);
+        try {
+            TxtBook txt = open(bookUrl);
+            String fileName = path.getFileName().toString();
+            String title = fileName.substring(0, fileName.length() - ".txt".length());
+            return Optional.of(new LegadoUtil.Book(title, "本地", bookUrl, null, 0, 0, 0, txt.table.size(), null));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public NovelChapterTable loadChapters(LegadoUtil.Book book) {
+        try {
+            TxtBook txt = open(book.bookUrl());
+            // 第一章需要知道结尾才能显示，其余交给后台
+            txt.scanUntilChapters(2);
+            txt.startBackgroundScan();
+            return txt.table;
+        } catch (IOException e) {
+            return NovelChapterTable.EMPTY;
+        }
+    }
+
+    @Override
+    public NovelChapterTable latestChapters(LegadoUtil.Book book, NovelChapterTable known) {
+        TxtBook txt;
+        synchronized (books) {
+            txt = books.get(book.bookUrl());
+        }
+        if (txt == null) return known;
+        NovelChapterTable latest = txt.table;
+        return latest.size() > known.size() ? latest : known;
+    }
+
+    @Override
+    public CompletableFuture<Optional<LegadoUtil.ChapterContent>> loadContent(LegadoUtil.Book book, int index, Executor executor) {
+        CompletableFuture<Optional<LegadoUtil.ChapterContent>> result = new CompletableFuture<>();
+        FutureTask<?> task = new FutureTask<>(() -> {
+            try {
+                String text = open(book.bookUrl()).content(index);
+                result.complete(text == null ? Optional.empty() : Optional.of(new LegadoUtil.ChapterContent(null, text, index)));
+            } catch (Exception e) {
+                result.complete(Optional.empty());
+            }
+        }, null);
+        executor.execute(task);
+        // 取消时中断尚未完成的扫描
+        result.whenComplete((content, e) -> {
+            if (result.isCancelled()) task.cancel(true);
+        });
+        return result;
+    }
+
+    @Override
+    public Optional<String> localContent(LegadoUtil.Book book, int index) {
+        try {
+            return Optional.ofNullable(open(book.bookUrl()).content(index));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 不保留解码结果，逐章解码上百 MB 的文件只为建立索引得不偿失；读过的章节在加载时已加入索引
+     */
+    @Override
+    public Optional<String> cachedContent(LegadoUtil.Book book, int index) {
+        return Optional.empty();
+    }
+
+    private TxtBook open(String bookUrl) throws IOException {
+        synchronized (books) {
+            TxtBook txt = books.get(bookUrl);
+            if (txt != null) return txt;
+            txt = new TxtBook(Paths.get(bookUrl.substring(URL_PREFIX.length())));
+            books.put(bookUrl, txt);
+            Iterator<TxtBook> it = books.values().iterator();
+            while (books.size() > MAX_OPEN_BOOKS && it.hasNext()) {
+                it.next().close();
+                it.remove();
+            }
+            return txt;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (books) {
+            for (TxtBook txt : books.values()) txt.close();
+            books.clear();
+        }
+    }
+
+    // ================= 单个文件 =================
+
+    private static final class TxtBook {
+        private final MappedByteBuffer data;
+        private final int length;
+        private final Charset charset;
+        private final int bodyStart;
+        private final byte[] headingPrefix;
+        private final byte[] fullWidthSpace;
+
+        // 以下字段只在持有 this 锁时读写
+        private int[] starts = new int[256];
+        private int count = 0;
+        private String lastTitle = "";
+        private final NovelChapterTable.Builder titles = new NovelChapterTable.Builder();
+        private int scanned;
+        private boolean complete = false;
+        private Future<?> background;
+
+        // 已建立部分的目录快照
+        private volatile NovelChapterTable table = NovelChapterTable.EMPTY;
+        private volatile boolean closed = false;
+
+        TxtBook(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw new IOException("文件超过 2GB: " + path);
+                this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                this.length = (int) size;
+            }
+            boolean bom = length >= 3 && (data.get(0) & 0xFF) == 0xEF && (data.get(1) & 0xFF) == 0xBB && (data.get(2) & 0xFF) == 0xBF;
+            this.bodyStart = bom ? 3 : 0;
+            this.charset = bom || looksLikeUtf8() ? StandardCharsets.UTF_8 : Charset.forName("GB18030");
+            this.headingPrefix = "第".getBytes(charset);
+            this.fullWidthSpace = "　".getBytes(charset);
+            this.scanned = bodyStart;
+        }
+
+        /**
+         * 用文件开头 64KB 判断编码：能按 UTF-8 严格解码则认为是 UTF-8，否则按 GBK 系列处理
+         */
+        private boolean looksLikeUtf8() {
+            ByteBuffer sample = data.duplicate().position(0).limit(Math.min(length, 64 * 1024));
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            CharBuffer out = CharBuffer.allocate(sample.remaining());
+            // endOfInput = false：末尾被截断的多字节字符不算错误
+            return !decoder.decode(sample, out, sample.limit() == length).isError();
+        }
+
+        void startBackgroundScan() {
+            synchronized (this) {
+                if (background != null || complete) return;
+                background = AppExecutorUtil.getAppExecutorService().submit(() -> {
+                    while (!closed && !Thread.currentThread().isInterrupted()) {
+                        synchronized (this) {
+                            if (complete) return;
+                            scanTo(scanned + SCAN_CHUNK);
+                            publish();
+                        }
+                    }
+                });
+            }
+        }
+
+        synchronized void scanUntilChapters(int chapters) {
+            while (!complete && count < chapters && !closed) scanTo(scanned + FOREGROUND_STEP);
+            publish();
+        }
+
+        /**
+         * 解码第 index 章；该章结尾尚未扫描到时先在当前线程继续扫描
+         */
+        String content(int index) {
+            int start, end;
+            synchronized (this) {
+                int before = count;
+                while (!complete && count <= index + 1 && !closed) {
+                    if (Thread.currentThread().isInterrupted()) return null;
+                    scanTo(scanned + FOREGROUND_STEP);
+                }
+                if (count != before) publish();
+                if (index < 0 || index >= count) return null;
+                start = starts[index];
+                end = index + 1 < count ? starts[index + 1] : length;
+            }
+            ByteBuffer slice = data.duplicate().position(start).limit(end);
+            return charset.decode(slice).toString();
+        }
+
+        /**
+         * 按行扫描到 limit 所在行结束，识别章节标题
+         */
+        private void scanTo(int limit) {
+            int pos = scanned;
+            int end = Math.min(limit, length);
+            while (pos < end) {
+                int lineEnd = pos;
+                while (lineEnd < length && data.get(lineEnd) != '\n') lineEnd++;
+
+                String heading = heading(pos, lineEnd);
+                if (heading != null) {
+                    if (count == 0 && !isBlank(bodyStart, pos)) add(bodyStart, "序");
+                    add(pos, heading);
+                } else if (pos - currentStart() >= MAX_CHAPTER_BYTES) {
+                    if (count == 0) add(bodyStart, "序");
+                    add(pos, lastTitle.endsWith("（续）") ? lastTitle : lastTitle + "（续）");
+                }
+                pos = lineEnd + 1;
+            }
+            scanned = Math.min(pos, length);
+            if (scanned >= length) {
+                complete = true;
+                if (count == 0) add(bodyStart, "正文");
+            }
+        }
+
+        /**
+         * 发布目录快照；复制整个标题表，只在扫描告一段落时调用
+         */
+        private void publish() {
+            if (table.size() != count) table = titles.build();
+        }
+
+        private int currentStart() {
+            return count == 0 ? bodyStart : starts[count - 1];
+        }
+
+        private void add(int start, String title) {
+            if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = start;
+            titles.add(title);
+            lastTitle = title;
+        }
+
+        /**
+         * 行首（跳过空白）以"第"开头且足够短时才解码该行，其余行只看字节
+         */
+        private String heading(int from, int to) {
+            int p = from;
+            while (p < to) {
+                byte b = data.get(p);
+                if (b == ' ' || b == '\t' || b == '\r') {
+                    p++;
+                } else if (startsWith(p, to, fullWidthSpace)) {
+                    p += fullWidthSpace.length;
+                } else {
+                    break;
+                }
+            }
+            if (to - p > MAX_HEADING_BYTES || !startsWith(p, to, headingPrefix)) return null;
+
+            byte[] bytes = new byte[to - p];
+            data.get(p, bytes);
+            String line = new String(bytes, charset).strip();
+            return HEADING.matcher(line).matches() ? line : null;
+        }
+
+        private boolean startsWith(int pos, int to, byte[] prefix) {
+            if (to - pos < prefix.length) return false;
+            for (int i = 0; i < prefix.length; i++) {
+                if (data.get(pos + i) != prefix[i]) return false;
+            }
+            return true;
+        }
+
+        private boolean isBlank(int from, int to) {
+            int i = from;
+            while (i < to) {
+                byte b = data.get(i);
+                if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                    i++;
+                } else if (startsWith(i, to, fullWidthSpace)) {
+                    i += fullWidthSpace.length;
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void close() {
+            closed = true;
+            synchronized (this) {
+                if (background != null) background.cancel(true);
+            }
+        }
+    }
+}
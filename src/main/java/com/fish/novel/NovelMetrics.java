@@ -0,0 +1,287 @@
+package com.fish.novel;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 轻量指标：热路径耗时直方图、缓存命中率、网络字节数（总量和按接口）。
+ * 关闭时 {@link #start()} 只读一次 volatile 并返回 0，不取时间、不写计数器；
+ * 开启后用于设置页勾选的状态栏面板，更细的逐次记录见 {@link NovelEvents}（JFR）
+ */
+public final class NovelMetrics {
+
+    public enum Timer {
+        REQUEST("请求"), PARSE("解析"), MEASURE("测量"), PAINT("绘制"), UPDATE_DISPLAY("刷新");
+
+        final String label;
+
+        Timer(String label) { this.label = label; }
+    }
+
+    public enum Ratio {
+        MEMORY_CACHE("内存缓存"), PREFETCH("预读复用"), DISK_CACHE("磁盘缓存");
+
+        final String label;
+
+        Ratio(String label) { this.label = label; }
+    }
+
+    private static volatile boolean enabled = false;
+
+    private static final Histogram[] timers = new Histogram[Timer.values().length];
+    private static final LongAdder[] hits = new LongAdder[Ratio.values().length];
+    private static final LongAdder[] misses = new LongAdder[Ratio.values().length];
+    private static final LongAdder bytesReceived = new LongAdder();
+    private static final LongAdder bytesSent = new LongAdder();
+    // 接口路径（不含查询参数）-> 流量和耗时
+    private static final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < timers.length; i++) timers[i] = new Histogram();
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+            misses[i] = new LongAdder();
+        }
+    }
+
+    private NovelMetrics() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        if (value && !enabled) reset();
+        enabled = value;
+    }
+
+    // ================= 记录 =================
+
+    /**
+     * 计时起点；未开启时返回 0，对应的 {@link #stop} 什么也不做
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(Timer timer, long start) {
+        if (start != 0L) timers[timer.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public static void hit(Ratio ratio, boolean hit) {
+        if (!enabled) return;
+        (hit ? hits : misses)[ratio.ordinal()].increment();
+    }
+
+    public static void received(long bytes) {
+        if (enabled && bytes > 0) bytesReceived.add(bytes);
+    }
+
+    public static void sent(long bytes) {
+        if (enabled && bytes > 0) bytesSent.add(bytes);
+    }
+
+    /**
+     * 记录一次完成的请求；start 来自 {@link #start()}，为 0 时什么也不做
+     *
+     * @param wireBytes    线路上收到的响应体字节（压缩后）
+     * @param decodedBytes 解压后的字节
+     */
+    public static void transfer(String endpoint, long wireBytes, long decodedBytes, long start) {
+        if (start == 0L) return;
+        Endpoint e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint());
+        e.latency.record(System.nanoTime() - start);
+        e.wireBytes.add(wireBytes);
+        e.decodedBytes.add(decodedBytes);
+    }
+
+    // ================= 读取 =================
+
+    public static Histogram timer(Timer timer) {
+        return timers[timer.ordinal()];
+    }
+
+    /**
+     * 命中率 0~1，没有样本时返回 -1
+     */
+    public static double hitRatio(Ratio ratio) {
+        long h = hits[ratio.ordinal()].sum();
+        long total = h + misses[ratio.ordinal()].sum();
+        return total == 0 ? -1 : (double) h / total;
+    }
+
+    public static long bytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public static long bytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * 按接口路径排序的快照
+     */
+    public static Map<String, Endpoint> endpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    public static void reset() {
+        for (Histogram h : timers) h.reset();
+        for (int i = 0; i < hits.length; i++) {
+            hits[i].reset();
+            misses[i].reset();
+        }
+        bytesReceived.reset();
+        bytesSent.reset();
+        endpoints.clear();
+    }
+
+    /**
+     * 状态栏显示的一行摘要
+     */
+    public static String summary() {
+        Histogram request = timer(Timer.REQUEST);
+        double cache = hitRatio(Ratio.MEMORY_CACHE);
+        return "请求 p50 " + formatNanos(request.percentile(0.5))
+                + " p99 " + formatNanos(request.percentile(0.99))
+                + " · 缓存 " + formatRatio(cache)
+                + " · " + formatBytes(bytesReceived());
+    }
+
+    /**
+     * 悬浮提示中的完整明细
+     */
+    public static String details() {
+        StringBuilder sb = new StringBuilder("<html><table>");
+        sb.append("<tr><td></td><td>次数</td><td>p50</td><td>p99</td><td>平均</td></tr>");
+        for (Timer t : Timer.values()) {
+            Histogram h = timer(t);
+            sb.append("<tr><td>").append(t.label).append("</td><td>").append(h.count())
+                    .append("</td><td>").append(formatNanos(h.percentile(0.5)))
+                    .append("</td><td>").append(formatNanos(h.percentile(0.99)))
+                    .append("</td><td>").append(formatNanos(h.mean())).append("</td></tr>");
+        }
+        sb.append("</table>");
+        for (Ratio r : Ratio.values()) {
+            sb.append(r.label).append(": ").append(formatRatio(hitRatio(r))).append("<br/>");
+        }
+        sb.append("接收 ").append(formatBytes(bytesReceived()))
+                .append(" / 发送 ").append(formatBytes(bytesSent()));
+
+        Map<String, Endpoint> byEndpoint = endpoints();
+        if (!byEndpoint.isEmpty()) {
+            sb.append("<table><tr><td>接口</td><td>次数</td><td>p50</td><td>p99</td><td>传输</td><td>解压后</td><td>压缩率</td></tr>");
+            byEndpoint.forEach((path, e) -> {
+                long wire = e.wireBytes();
+                long decoded = e.decodedBytes();
+                sb.append("<tr><td>").append(path).append("</td><td>").append(e.latency().count())
+                        .append("</td><td>").append(formatNanos(e.latency().percentile(0.5)))
+                        .append("</td><td>").append(formatNanos(e.latency().percentile(0.99)))
+                        .append("</td><td>").append(formatBytes(wire))
+                        .append("</td><td>").append(formatBytes(decoded))
+                        .append("</td><td>").append(formatRatio(decoded == 0 ? -1 : (double) wire / decoded))
+                        .append("</td></tr>");
+            });
+            sb.append("</table>");
+        }
+        return sb.append("</html>").toString();
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos < 0) return "-";
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format(Locale.ROOT, "%.1fµs", nanos / 1e3);
+        if (nanos < 10_000_000_000L) return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        return String.format(Locale.ROOT, "%.1fs", nanos / 1e9);
+    }
+
+    static String formatRatio(double ratio) {
+        return ratio < 0 ? "-" : Math.round(ratio * 100) + "%";
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + "B";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1fKB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.1fMB", bytes / (1024.0 * 1024));
+    }
+
+    /**
+     * 单个接口的累计：请求耗时、线路字节和解压后字节，两者之比即压缩带来的节省
+     */
+    public static final class Endpoint {
+        private final Histogram latency = new Histogram();
+        private final LongAdder wireBytes = new LongAdder();
+        private final LongAdder decodedBytes = new LongAdder();
+
+        public Histogram latency() {
+            return latency;
+        }
+
+        public long wireBytes() {
+            return wireBytes.sum();
+        }
+
+        public long decodedBytes() {
+            return decodedBytes.sum();
+        }
+    }
+
+    /**
+     * 按 2 的幂分桶的纳秒直方图：桶 i 覆盖 [2^(i-1), 2^i)，
+     * 分位数取所在桶的上界，误差不超过 2 倍，足够区分"微秒级"和"百毫秒级"
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 48;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+        }
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+            buckets[bucket].increment();
+            count.increment();
+            total.add(nanos);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long mean() {
+            long n = count.sum();
+            return n == 0 ? -1 : total.sum() / n;
+        }
+
+        /**
+         * 没有样本时返回 -1
+         */
+        public long percentile(double p) {
+            long[] snapshot = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) n += snapshot[i] = buckets[i].sum();
+            if (n == 0) return -1;
+            long rank = (long) Math.ceil(p * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) return i == 0 ? 0 : 1L << i;
+            }
+            return 1L << (BUCKETS - 1);
+        }
+
+        void reset() {
+            for (LongAdder b : buckets) b.reset();
+            count.reset();
+            total.reset();
+        }
+    }
+}
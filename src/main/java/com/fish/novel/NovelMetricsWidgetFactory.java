@@ -0,0 +1,103 @@
+package com.fish.novel;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.StatusBar;
+import com.intellij.openapi.wm.StatusBarWidget;
+import com.intellij.openapi.wm.StatusBarWidgetFactory;
+import com.intellij.util.Consumer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态栏性能面板：默认隐藏，在状态栏右键菜单中勾选后显示。
+ * 数据来自 {@link NovelMetrics}，需要先在设置页开启指标记录；单击清零
+ */
+public class NovelMetricsWidgetFactory implements StatusBarWidgetFactory {
+
+    static final String ID = "com.fish.novel.NovelMetricsWidget";
+
+    @Override
+    public @NotNull String getId() {
+        return ID;
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return "Novel Reader 性能指标";
+    }
+
+    @Override
+    public boolean isEnabledByDefault() {
+        return false;
+    }
+
+    @Override
+    public @NotNull StatusBarWidget createWidget(@NotNull Project project) {
+        return new Widget();
+    }
+
+    private static final class Widget implements StatusBarWidget, StatusBarWidget.TextPresentation {
+
+        private static final long REFRESH_MS = 1000;
+
+        private StatusBar statusBar;
+        private ScheduledFuture<?> refreshTask;
+
+        @Override
+        public @NotNull String ID() {
+            return ID;
+        }
+
+        @Override
+        public @Nullable WidgetPresentation getPresentation() {
+            return this;
+        }
+
+        @Override
+        public void install(@NotNull StatusBar statusBar) {
+            this.statusBar = statusBar;
+            refreshTask = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                // 未开启时数字不会变化，不必打扰 EDT
+                if (NovelMetrics.isEnabled()) {
+                    ApplicationManager.getApplication().invokeLater(() -> statusBar.updateWidget(ID));
+                }
+            }, REFRESH_MS, REFRESH_MS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public @NotNull String getText() {
+            return NovelMetrics.isEnabled() ? NovelMetrics.summary() : "阅读指标未开启";
+        }
+
+        @Override
+        public float getAlignment() {
+            return Component.CENTER_ALIGNMENT;
+        }
+
+        @Override
+        public @Nullable String getTooltipText() {
+            return NovelMetrics.isEnabled() ? NovelMetrics.details() : "在 设置 | 工具 | Novel Reader 中开启性能指标";
+        }
+
+        @Override
+        public @Nullable Consumer<MouseEvent> getClickConsumer() {
+            return e -> {
+                NovelMetrics.reset();
+                if (statusBar != null) statusBar.updateWidget(ID);
+            };
+        }
+
+        @Override
+        public void dispose() {
+            if (refreshTask != null) refreshTask.cancel(false);
+            statusBar = null;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.fish.novel;
+
+import com.google.gson.Gson;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ComponentManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阅读进度日志：每次保存先追加写入本地日志并 fsync，再由后台同步到 Legado。
+ * 同一本书只推送最新位置，失败按指数退避重试，与上次确认的位置相同则跳过。
+ * 服务器不可达或 IDE 退出时进度都不会丢失，下次启动继续同步
+ */
+@Service(Service.Level.APP)
+public final class NovelProgressJournal implements Disposable {
+
+    private static final String JOURNAL_FILE = "progress.journal";
+    // 日志超过该行数时压缩为每本书一条
+    private static final int COMPACT_THRESHOLD = 512;
+    private static final long MIN_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 日志中的一行；acked = true 表示该位置已被服务器确认
+     */
+    public record Entry(String bookUrl, String name, String author, int chapterIndex, int chapterPos,
+                        String chapterTitle, long time, boolean acked) {
+
+        boolean samePosition(Entry other) {
+            return other != null && chapterIndex == other.chapterIndex && chapterPos == other.chapterPos;
+        }
+    }
+
+    private static final Gson gson = new Gson();
+
+    private final Path file;
+    private FileChannel channel;
+    private int lineCount = 0;
+
+    // bookUrl -> 最新待同步位置 / 最近一次确认的位置
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final Map<String, Entry> acknowledged = new HashMap<>();
+
+    private ScheduledFuture<?> syncTask;
+    private boolean syncing = false;
+    private long backoffMs = MIN_BACKOFF_MS;
+
+    public static NovelProgressJournal getInstance() {
+        return ((ComponentManager)ApplicationManager.getApplication()).getService(NovelProgressJournal.class);
+    }
+
+    public NovelProgressJournal() {
+        this.file = Paths.get(PathManager.getSystemPath(), "kan-book", JOURNAL_FILE);
+        replay();
+        scheduleSync(0);
+    }
+
+    /**
+     * 记录一次阅读位置（调用方已做防抖）
+     */
+    public synchronized void record(LegadoUtil.Book book, int chapterIndex, int chapterPos, String chapterTitle) {
+        // 本地 TXT 书籍没有服务器可同步，写入日志即视为确认
+        boolean local = NovelLocalTxtSource.isLocal(book.bookUrl());
+        Entry entry = new Entry(book.bookUrl(), book.name(), book.author(), chapterIndex, chapterPos,
+                chapterTitle, System.currentTimeMillis(), local);
+        Entry last = pending.getOrDefault(entry.bookUrl(), acknowledged.get(entry.bookUrl()));
+        if (entry.samePosition(last)) return;
+
+        append(entry);
+        if (local) {
+            acknowledged.put(entry.bookUrl(), entry);
+            if (lineCount > COMPACT_THRESHOLD) compact();
+            return;
+        }
+        pending.put(entry.bookUrl(), entry);
+        scheduleSync(0);
+    }
+
+    /**
+     * 本地记录的最新位置（含未同步的），没有记录时返回 null
+     */
+    public synchronized Entry latest(String bookUrl) {
+        Entry entry = pending.get(bookUrl);
+        return entry != null ? entry : acknowledged.get(bookUrl);
+    }
+
+    // ================= 后台同步 =================
+
+    private synchronized void scheduleSync(long delayMs) {
+        if (syncing || pending.isEmpty()) return;
+        if (syncTask != null && !syncTask.isDone()) {
+            if (delayMs > 0) return;
+            syncTask.cancel(false);
+        }
+        syncTask = AppExecutorUtil.getAppScheduledExecutorService().schedule(this::syncNext, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void syncNext() {
+        Entry entry;
+        synchronized (this) {
+            if (syncing || pending.isEmpty()) return;
+            entry = pending.values().iterator().next();
+            syncing = true;
+        }
+
+        LegadoUtil.Book book = new LegadoUtil.Book(entry.name(), entry.author(), entry.bookUrl(), null,
+                entry.chapterIndex(), entry.chapterPos(), entry.time(), 0, null);
+        LegadoUtil.saveProgressAsync(book, entry.chapterIndex(), entry.chapterPos(), entry.chapterTitle(), entry.time())
+                .whenComplete((ok, e) -> onSynced(entry, Boolean.TRUE.equals(ok)));
+    }
+
+    private synchronized void onSynced(Entry entry, boolean ok) {
+        syncing = false;
+        if (!ok) {
+            // 指数退避重试，期间有新的进度也会合并到同一次推送中
+            long delay = backoffMs;
+            backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+            scheduleSync(delay);
+            return;
+        }
+
+        backoffMs = MIN_BACKOFF_MS;
+        Entry acked = new Entry(entry.bookUrl(), entry.name(), entry.author(), entry.chapterIndex(),
+                entry.chapterPos(), entry.chapterTitle(), entry.time(), true);
+        acknowledged.put(entry.bookUrl(), acked);
+        // 推送期间可能又有了更新的位置，只有仍是同一条时才移出待同步队列
+        if (pending.get(entry.bookUrl()) == entry) pending.remove(entry.bookUrl());
+        append(acked);
+        if (lineCount > COMPACT_THRESHOLD) compact();
+        scheduleSync(0);
+    }
+
+    // ================= 日志文件 =================
+
+    private void replay() {
+        if (!Files.exists(file)) return;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                Entry entry;
+                try {
+                    entry = gson.fromJson(line, Entry.class);
+                } catch (Exception e) {
+                    continue; // 写到一半的最后一行
+                }
+                if (entry == null || entry.bookUrl() == null) continue;
+                lineCount++;
+                if (entry.acked()) {
+                    acknowledged.put(entry.bookUrl(), entry);
+                    if (entry.samePosition(pending.get(entry.bookUrl()))) pending.remove(entry.bookUrl());
+                } else {
+                    pending.put(entry.bookUrl(), entry);
+                }
+            }
+        } catch (IOException ignored) {}
+    }
+
+    private void append(Entry entry) {
+        try {
+            if (channel == null) {
+                Files.createDirectories(file.getParent());
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            channel.write(ByteBuffer.wrap((gson.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8)));
+            // 只刷数据不刷元数据，开销很小
+            channel.force(false);
+            lineCount++;
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * 重写日志：每本书只保留确认位置和待同步位置
+     */
+    private void compact() {
+        List<Entry> entries = new ArrayList<>(acknowledged.values());
+        entries.addAll(pending.values());
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : entries) sb.append(gson.toJson(entry)).append('\n');
+        try {
+            closeChannel();
+            Path tmp = file.resolveSibling(JOURNAL_FILE + ".tmp");
+            Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lineCount = entries.size();
+        } catch (IOException ignored) {}
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        // 未同步的进度都已落盘，退出时无需等待网络
+        if (syncTask != null) syncTask.cancel(false);
+        try {
+            closeChannel();
+        } catch (IOException ignored) {}
+    }
+}
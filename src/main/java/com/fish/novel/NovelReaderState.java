@@ -0,0 +1,81 @@
+package com.fish.novel;
+
+/**
+ * 阅读器状态的不可变快照：书籍、目录、当前章节正文和位置总是一起发布。
+ * {@link NovelGlobalService} 通过一个原子引用整体替换，绘制和滚动只需读取一次引用，
+ * 不会拿到 A 章的正文配 B 章的位置
+ * <p>
+ * 构造时把 textIndex 限制在 content 范围内，读取方无需再做越界检查
+ *
+ * @param text          当前章节的规范化正文；显示状态提示或切章加载中时为 null
+ * @param content       要显示的文本：text 的 display()，或状态提示
+ * @param pendingRawPos 打开书籍时恢复的原文偏移 (durChapterPos)，章节加载后换算为显示偏移
+ */
+public record NovelReaderState(LegadoUtil.Book book, NovelChapterTable chapters, NovelChapterText text, String content,
+                               int chapterIndex, int textIndex, int pendingRawPos, boolean loading, boolean error) {
+
+    static final NovelReaderState INITIAL = new NovelReaderState(null, null, null, "等待连接...", -1, 0, -1, false, false);
+
+    public NovelReaderState {
+        if (content == null) content = "";
+        textIndex = Math.max(0, Math.min(textIndex, content.length() - 1));
+    }
+
+    /**
+     * 是否有可保存的阅读位置（加载中或出错时 content 只是状态提示）
+     */
+    public boolean hasText() {
+        return text != null && !loading && !error;
+    }
+
+    NovelReaderState withStatus(String message, boolean isError) {
+        // 出错时归零 index
+        return new NovelReaderState(book, chapters, null, message, chapterIndex, isError ? 0 : textIndex,
+                pendingRawPos, !isError, isError);
+    }
+
+    /**
+     * 打开新书：目录和要恢复的位置一起发布，正文随后加载
+     */
+    NovelReaderState withBook(LegadoUtil.Book newBook, NovelChapterTable newChapters, int newChapterIndex, int rawPos) {
+        return new NovelReaderState(newBook, newChapters, null, content, newChapterIndex, 0, rawPos, loading, error);
+    }
+
+    NovelReaderState withChapters(NovelChapterTable newChapters) {
+        return new NovelReaderState(book, newChapters, text, content, chapterIndex, textIndex, pendingRawPos, loading, error);
+    }
+
+    /**
+     * 切到另一章：在正文到达前仍显示旧内容，但不再视为可保存的位置
+     */
+    NovelReaderState withChapterIndex(int newChapterIndex) {
+        return withChapterIndex(newChapterIndex, -1);
+    }
+
+    /**
+     * 切到另一章并在正文到达后定位到原文偏移 rawPos（搜索结果跳转）
+     */
+    NovelReaderState withChapterIndex(int newChapterIndex, int rawPos) {
+        return new NovelReaderState(book, chapters, null, content, newChapterIndex, 0, rawPos, true, false);
+    }
+
+    NovelReaderState withIndex(int newTextIndex) {
+        return new NovelReaderState(book, chapters, text, content, chapterIndex, newTextIndex, pendingRawPos, loading, error);
+    }
+
+    /**
+     * 当前章节的正文到达：有待恢复的位置时换算过去，否则按 jumpToEnd 定位到开头或末尾
+     */
+    NovelReaderState withText(NovelChapterText chapter, boolean jumpToEnd) {
+        int index;
+        if (pendingRawPos >= 0) {
+            index = chapter.toDisplay(pendingRawPos);
+        } else if (jumpToEnd) {
+            // 渲染器会自动处理边界，指到最后一个字符即可
+            index = chapter.length() - 1;
+        } else {
+            index = 0;
+        }
+        return new NovelReaderState(book, chapters, chapter, chapter.display(), chapterIndex, index, -1, false, false);
+    }
+}
@@ -0,0 +1,68 @@
+package com.fish.novel;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全文搜索：在当前书已下载或本地缓存的章节中查找，选中结果后跳转到命中所在章节的对应位置
+ */
+public class NovelSearchAction extends AnAction {
+
+    private static final int MAX_HITS = 200;
+    private static final String TITLE = "全文搜索";
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        NovelGlobalService service = NovelGlobalService.getInstance();
+        LegadoUtil.Book book = service.getCurrentBook();
+        if (book == null) {
+            Messages.showInfoMessage(project, "请先打开一本书", TITLE);
+            return;
+        }
+
+        String query = Messages.showInputDialog(project, "在《" + book.name() + "》已缓存的章节中搜索：",
+                TITLE, Messages.getQuestionIcon());
+        if (query == null || query.isBlank()) return;
+
+        service.search(query, MAX_HITS).thenAccept(hits ->
+                ApplicationManager.getApplication().invokeLater(() -> showHits(project, service, book, query, hits)));
+    }
+
+    private static void showHits(Project project, NovelGlobalService service, LegadoUtil.Book book,
+                                 String query, List<NovelSearchIndex.Hit> hits) {
+        if (hits.isEmpty()) {
+            Messages.showInfoMessage(project, "未找到 \"" + query.strip() + "\"（已索引 "
+                    + service.getIndexedChapterCount() + " 章）", TITLE);
+            return;
+        }
+        // 序号保证每一项文本唯一，选中后按序号取回命中
+        List<String> items = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            NovelSearchIndex.Hit hit = hits.get(i);
+            items.add((i + 1) + ". " + hit.title() + " · " + hit.context());
+        }
+        String title = "\"" + query.strip() + "\" · " + hits.size() + (hits.size() >= MAX_HITS ? "+" : "") + " 处";
+
+        JBPopupFactory.getInstance()
+                .createPopupChooserBuilder(items)
+                .setTitle(title)
+                .setItemChosenCallback(item -> service.jumpTo(book, hits.get(items.indexOf(item))))
+                .createPopup()
+                .showInFocusCenter();
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+}
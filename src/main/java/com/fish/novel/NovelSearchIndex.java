@@ -0,0 +1,325 @@
+package com.fish.novel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 一本书的全文倒排索引：键是相邻两个字符组成的二元组（中文不分词，二元组足以定位），
+ * 另加单字键以支持一个字的查询。键按哈希分到固定数量的桶中，不保存键本身：
+ * 一本书的不同二元组可达上百万个，逐键建表的开销远大于倒排表本身；
+ * 冲突只会让候选章节变多，不会漏掉结果。
+ * 倒排表只记录章节号，升序存为差值的变长编码 (varint) byte[]，相邻章节的差值通常只占 1 个字节。
+ * <p>
+ * 查询时对各键的倒排表求交集得到候选章节，再只在候选章节里确认精确位置，
+ * 不需要逐章扫描全书。记录章内偏移会让索引大上数倍，而候选章节通常只有几章
+ * <p>
+ * 章节到达时增量加入，同一章只索引一次；所有方法线程安全
+ */
+public final class NovelSearchIndex {
+
+    private static final int[] EMPTY = new int[0];
+    // 命中位置前后各显示的字符数
+    private static final int CONTEXT_CHARS = 16;
+
+    /**
+     * 一处命中
+     *
+     * @param offset    章内的显示偏移
+     * @param rawOffset 对应的原文偏移，可直接作为 durChapterPos 跳转
+     * @param context   命中处前后的一小段文字，段落标记替换为空格
+     */
+    public record Hit(int chapterIndex, String title, int offset, int rawOffset, String context) {}
+
+    private static final int DEFAULT_BUCKET_BITS = 16;
+
+    private final int mask;
+    // 桶 -> 升序章节号的差值编码（未使用的桶为 null）、已用字节数、条目数、最后一个章节号
+    private final byte[][] postings;
+    private final int[] lengths;
+    private final int[] counts;
+    private final int[] lasts;
+    // 桶 -> 比 lasts 小、无法直接追加的章节号（无序），积累到一定数量再合并进编码
+    private final int[][] extras;
+    private final int[] extraCounts;
+
+    private final BitSet indexed = new BitSet();
+    private long postingBytes = 0;
+
+    public NovelSearchIndex() {
+        this(DEFAULT_BUCKET_BITS);
+    }
+
+    NovelSearchIndex(int bucketBits) {
+        int buckets = 1 << bucketBits;
+        this.mask = buckets - 1;
+        this.postings = new byte[buckets][];
+        this.lengths = new int[buckets];
+        this.counts = new int[buckets];
+        this.lasts = new int[buckets];
+        this.extras = new int[buckets][];
+        this.extraCounts = new int[buckets];
+        Arrays.fill(lasts, -1);
+    }
+
+    /**
+     * 加入一章的规范化正文；已索引过的章节直接跳过
+     */
+    public void add(int chapterIndex, NovelChapterText text) {
+        int[] chapterBuckets = bucketsOf(text.display());
+        synchronized (this) {
+            if (indexed.get(chapterIndex)) return;
+            indexed.set(chapterIndex);
+            for (int bucket : chapterBuckets) append(bucket, chapterIndex);
+        }
+    }
+
+    public synchronized boolean contains(int chapterIndex) {
+        return indexed.get(chapterIndex);
+    }
+
+    public synchronized int chapterCount() {
+        return indexed.cardinality();
+    }
+
+    /**
+     * 可能包含 query 的章节（升序）：query 中每个可索引片段的所有键都出现过的章节。
+     * 结果是精确匹配的超集，调用方需在正文中确认
+     */
+    public int[] candidates(String query) {
+        int[] queryBuckets = bucketsOf(query);
+        if (queryBuckets.length == 0) return EMPTY;
+        synchronized (this) {
+            Integer[] order = new Integer[queryBuckets.length];
+            for (int i = 0; i < queryBuckets.length; i++) {
+                if (postings[queryBuckets[i]] == null) return EMPTY;
+                order[i] = queryBuckets[i];
+            }
+            // 从最短的表开始求交，候选数只会越来越少
+            Arrays.sort(order, (a, b) -> Integer.compare(counts[a] + extraCounts[a], counts[b] + extraCounts[b]));
+
+            int[] result = decode(order[0]);
+            int count = result.length;
+            for (int k = 1; k < order.length && count > 0; k++) {
+                count = intersect(result, count, decode(order[k]));
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    /**
+     * 候选章节的标题和正文，由 {@link #search} 按章节顺序逐章取用
+     */
+    interface Chapters {
+        String title(int chapterIndex);
+
+        /**
+         * 规范化后的正文；读不到或已确认原文不含 query 时返回 null，跳过该章
+         */
+        NovelChapterText text(int chapterIndex);
+    }
+
+    /**
+     * 查找 query：先求候选章节，再逐章确认位置，按章节顺序返回最多 limit 处命中
+     */
+    List<Hit> search(String query, int limit, Chapters chapters) {
+        List<Hit> hits = new ArrayList<>();
+        for (int chapter : candidates(query)) {
+            if (hits.size() >= limit) break;
+            NovelChapterText text = chapters.text(chapter);
+            if (text != null) findAll(chapter, chapters.title(chapter), text, query, hits, limit);
+        }
+        return hits;
+    }
+
+    /**
+     * 在候选章节的正文中确认 query 的精确位置（忽略大小写），追加到 out，最多 limit 条
+     */
+    static void findAll(int chapterIndex, String title, NovelChapterText text, String query, List<Hit> out, int limit) {
+        String display = text.display();
+        for (int i = indexOf(display, query, 0); i >= 0 && out.size() < limit; i = indexOf(display, query, i + query.length())) {
+            int from = Math.max(0, i - CONTEXT_CHARS);
+            int to = Math.min(display.length(), i + query.length() + CONTEXT_CHARS);
+            String context = (from > 0 ? "…" : "") + display.substring(from, to).replace(NovelChapterText.PARAGRAPH_MARK, ' ')
+                    + (to < display.length() ? "…" : "");
+            out.add(new Hit(chapterIndex, title, i, text.toRaw(i), context));
+        }
+    }
+
+    /**
+     * 原文中是否可能有命中：命中不会跨段落，一定原样出现在原文中。
+     * 在规范化之前调用，哈希冲突带来的假候选章节不必规范化
+     */
+    static boolean mayContain(String raw, String query) {
+        return indexOf(raw, query, 0) >= 0;
+    }
+
+    /**
+     * 忽略大小写的 indexOf；查询中没有大小写之分的字符（中文）时直接用 String.indexOf，快得多
+     */
+    private static int indexOf(String text, String query, int from) {
+        if (isCaseless(query)) return text.indexOf(query, from);
+        int last = text.length() - query.length();
+        for (int i = from; i <= last; i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isCaseless(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.toLowerCase(c) != c || Character.toUpperCase(c) != c) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 粗略估算占用的堆内存
+     */
+    public synchronized long estimateBytes() {
+        return (long) postings.length * 28 + postingBytes;
+    }
+
+    // ================= 键 =================
+
+    /**
+     * 文本中出现的全部键所在的桶（去重）：每段连续的可索引字符贡献其中的单字和相邻二元组，
+     * 标点、空白和段落标记处断开；英文按小写处理
+     */
+    private int[] bucketsOf(String text) {
+        int n = text.length();
+        int[] result = new int[n * 2];
+        int count = 0;
+        char prev = 0;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (!isIndexable(c)) {
+                prev = 0;
+                continue;
+            }
+            c = Character.toLowerCase(c);
+            result[count++] = bucket(c << 16);
+            if (prev != 0) result[count++] = bucket(prev << 16 | c);
+            prev = c;
+        }
+        Arrays.sort(result, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || result[unique - 1] != result[i]) result[unique++] = result[i];
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    private static boolean isIndexable(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    // ================= 桶与倒排表 =================
+
+    private int bucket(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * 章节通常按顺序到达，直接在末尾追加差值；向前翻、预读上一章或后台补全较早的章节时
+     * 先放进无序的 extras，数量超过编码部分的 1/4 时整表合并重编码，均摊下来仍是线性的
+     */
+    private void append(int bucket, int chapterIndex) {
+        if (postings[bucket] == null) postings[bucket] = new byte[2];
+        if (chapterIndex > lasts[bucket]) {
+            writeVarInt(bucket, chapterIndex - lasts[bucket]);
+            lasts[bucket] = chapterIndex;
+            counts[bucket]++;
+            return;
+        }
+        int[] extra = extras[bucket];
+        int n = extraCounts[bucket];
+        if (extra == null) extras[bucket] = extra = new int[4];
+        else if (n == extra.length) extras[bucket] = extra = Arrays.copyOf(extra, n * 2);
+        extra[n] = chapterIndex;
+        extraCounts[bucket] = n + 1;
+        postingBytes += 4;
+        if (n + 1 > Math.max(8, counts[bucket] >> 2)) compact(bucket);
+    }
+
+    private void compact(int bucket) {
+        int[] merged = decode(bucket);
+        postingBytes -= lengths[bucket] + extraCounts[bucket] * 4L;
+        postings[bucket] = new byte[Math.max(2, lengths[bucket] + extraCounts[bucket] * 2)];
+        lengths[bucket] = 0;
+        counts[bucket] = 0;
+        lasts[bucket] = -1;
+        extras[bucket] = null;
+        extraCounts[bucket] = 0;
+        for (int value : merged) {
+            writeVarInt(bucket, value - lasts[bucket]);
+            lasts[bucket] = value;
+            counts[bucket]++;
+        }
+    }
+
+    private void writeVarInt(int bucket, int value) {
+        byte[] bytes = postings[bucket];
+        int length = lengths[bucket];
+        if (length + 5 > bytes.length) postings[bucket] = bytes = Arrays.copyOf(bytes, Math.max(length + 5, length + (length >> 1)));
+        int start = length;
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+        lengths[bucket] = length;
+        postingBytes += length - start;
+    }
+
+    /**
+     * 完整的升序章节号：编码部分与 extras 归并
+     */
+    private int[] decode(int bucket) {
+        byte[] bytes = postings[bucket];
+        int n = counts[bucket];
+        int extraCount = extraCounts[bucket];
+        int[] result = new int[n + extraCount];
+        int pos = 0, value = -1;
+        for (int i = 0; i < n; i++) {
+            int delta = 0, shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += delta;
+            result[i] = value;
+        }
+        if (extraCount > 0) {
+            System.arraycopy(extras[bucket], 0, result, n, extraCount);
+            Arrays.sort(result);
+        }
+        return result;
+    }
+
+    /**
+     * 原地求交：a 的前 aLength 个与升序的 b，结果写回 a，返回新长度
+     */
+    private static int intersect(int[] a, int aLength, int[] b) {
+        int i = 0, j = 0, out = 0;
+        while (i < aLength && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                // b 通常远长于 a，跳跃查找下一个不小于 a[i] 的位置
+                int found = Arrays.binarySearch(b, j, b.length, a[i]);
+                j = found >= 0 ? found : -found - 1;
+            } else {
+                a[out++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,55 @@
+package com.fish.novel;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 快速切换书籍：最近读过（仍保持热状态）的书排在前面，其次是书架中的其他书
+ */
+public class NovelSwitchBookAction extends AnAction {
+
+    private static final String WARM_MARK = " ●";
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        NovelGlobalService service = NovelGlobalService.getInstance();
+        LegadoUtil.Book current = service.getCurrentBook();
+
+        // 显示名 -> 写入配置的书名；本地 TXT 需要写入文件路径
+        Map<String, String> warm = new LinkedHashMap<>();
+        for (LegadoUtil.Book book : service.getWarmBooks()) {
+            warm.put(book.name(), NovelLocalTxtSource.isLocal(book.bookUrl()) ? NovelLocalTxtSource.pathOf(book) : book.name());
+        }
+        List<String> items = new ArrayList<>();
+        for (String name : warm.keySet()) items.add(name + WARM_MARK);
+        for (LegadoUtil.Book book : NovelBookshelf.getInstance().books()) {
+            if (!warm.containsKey(book.name()) && (current == null || !book.name().equals(current.name()))) {
+                items.add(book.name());
+            }
+        }
+        if (items.isEmpty()) return;
+
+        JBPopupFactory.getInstance()
+                .createPopupChooserBuilder(items)
+                .setTitle("切换书籍")
+                .setItemChosenCallback(item -> {
+                    String name = item.endsWith(WARM_MARK) ? item.substring(0, item.length() - WARM_MARK.length()) : item;
+                    service.switchBook(warm.getOrDefault(name, name));
+                })
+                .createPopup()
+                .showInFocusCenter();
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+}
@@ -0,0 +1,104 @@
+package com.fish.novel;
+
+import java.util.Arrays;
+
+/**
+ * 触发词匹配：把所有关键词倒序编译成一棵字典树，从光标位置往回逐字走树，
+ * 直接比较文档的 CharSequence，不分配任何对象。
+ * 匹配总是锚定在光标处，因此不需要 Aho-Corasick 的失配指针
+ */
+public final class NovelTriggerMatcher {
+
+    private static volatile NovelTriggerMatcher current;
+
+    // 扁平化的字典树：firstChild/nextSibling 链表，label 为进入该节点的字符
+    private final char[] label;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final boolean[] terminal;
+    private final int maxLength;
+
+    private NovelTriggerMatcher(char[] label, int[] firstChild, int[] nextSibling,
+                                boolean[] terminal, int maxLength) {
+        this.label = label;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.terminal = terminal;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 当前配置对应的匹配器，配置变化后第一次使用时重新编译
+     */
+    public static NovelTriggerMatcher current() {
+        NovelTriggerMatcher matcher = current;
+        if (matcher == null) {
+            matcher = compile(NovelConfig.getInstance().matchPrefix);
+            current = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * 配置修改或加载后调用
+     */
+    public static void invalidate() {
+        current = null;
+    }
+
+    /**
+     * 多个关键词用逗号、竖线或空白分隔
+     */
+    public static NovelTriggerMatcher compile(String keywords) {
+        String[] words = keywords == null ? new String[0] : keywords.trim().split("[,，|\\s]+");
+        int capacity = 1;
+        for (String w : words) capacity += w.length();
+
+        char[] label = new char[capacity];
+        int[] firstChild = new int[capacity];
+        int[] nextSibling = new int[capacity];
+        boolean[] terminal = new boolean[capacity];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+
+        int size = 1; // 0 号为根节点
+        int maxLength = 0;
+        for (String w : words) {
+            if (w.isEmpty()) continue;
+            maxLength = Math.max(maxLength, w.length());
+            int node = 0;
+            for (int i = w.length() - 1; i >= 0; i--) {
+                char c = w.charAt(i);
+                int child = firstChild[node];
+                while (child != -1 && label[child] != c) child = nextSibling[child];
+                if (child == -1) {
+                    child = size++;
+                    label[child] = c;
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+            }
+            terminal[node] = true;
+        }
+        return new NovelTriggerMatcher(label, firstChild, nextSibling, terminal, maxLength);
+    }
+
+    /**
+     * 判断 text 中以 offset 结尾的部分是否是某个关键词
+     * @return 匹配到的关键词长度（多个时取最短），未匹配返回 -1
+     */
+    public int matchEndingAt(CharSequence text, int offset) {
+        int node = 0;
+        int limit = Math.max(0, offset - maxLength);
+        for (int i = offset - 1; i >= limit; i--) {
+            char c = text.charAt(i);
+            int child = firstChild[node];
+            while (child != -1 && label[child] != c) child = nextSibling[child];
+            if (child == -1) return -1;
+            node = child;
+            if (terminal[node]) return offset - i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,76 @@
+package com.fish.novel;
+
+import javax.swing.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * 滚轮输入累加器：累加 getPreciseWheelRotation() 的小数增量，每帧最多换算并提交一次行数。
+ * 第一次滚动立即生效，之后同一帧内的事件合并；触控板的细小增量累计满一行才移动，余数保留到下次。
+ * 开启惯性时，停止输入后按上一帧的速度衰减继续滚动
+ * <p>
+ * 只在 EDT 上使用
+ */
+final class NovelWheelAccumulator {
+
+    private static final int FRAME_MS = 16;
+    // 惯性每帧的衰减系数，速度低于 1 行/帧即停止
+    private static final double FRICTION = 0.8;
+
+    private final IntConsumer sink;
+    private final BooleanSupplier momentum;
+    private final Timer timer;
+
+    private double pending = 0;
+    private double velocity = 0;
+    private boolean inputThisFrame = false;
+
+    /**
+     * @param sink     接收合并后的行数，正数向后、负数向前
+     * @param momentum 是否启用惯性（每帧读取，设置修改后立即生效）
+     */
+    NovelWheelAccumulator(IntConsumer sink, BooleanSupplier momentum) {
+        this.sink = sink;
+        this.momentum = momentum;
+        this.timer = new Timer(FRAME_MS, e -> flush());
+    }
+
+    void add(double rotation) {
+        if (rotation == 0) return;
+        // 反向滚动时丢弃旧方向的余数和惯性
+        if (pending * rotation < 0 || velocity * rotation < 0) {
+            pending = 0;
+            velocity = 0;
+        }
+        pending += rotation;
+        inputThisFrame = true;
+        if (!timer.isRunning()) {
+            flush();
+            timer.start();
+        }
+    }
+
+    private void flush() {
+        int lines = (int) pending; // 向零取整，余数留给下一帧
+        pending -= lines;
+
+        if (inputThisFrame) {
+            velocity = lines;
+        } else if (momentum.getAsBoolean() && Math.abs(velocity * FRICTION) >= 1) {
+            velocity *= FRICTION;
+            lines = (int) velocity;
+        } else {
+            velocity = 0;
+            timer.stop();
+        }
+        inputThisFrame = false;
+        if (lines != 0) sink.accept(lines);
+    }
+
+    void stop() {
+        timer.stop();
+        pending = 0;
+        velocity = 0;
+        inputThisFrame = false;
+    }
+}
@@ -0,0 +1,236 @@
+package com.fish.novel;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 进程内的 Legado Web 服务替身，实现阅读插件用到的四个接口：
+ * /getBookshelf、/getChapterList、/getBookContent、/saveBookProgress。
+ * 可配置延迟、抖动、失败率、是否 gzip 压缩和书的规模，并按接口统计请求数和发出的字节数。
+ * 回归测试和 JMH 基准共用（jmh 源码集通过 includeTests 引用测试类）
+ * <p>
+ * 单独运行 main() 后用 -Dnovel.legado.url=127.0.0.1:端口 启动 runIde，即可脱离手机调试
+ */
+final class FakeLegadoServer implements AutoCloseable {
+
+    static final String BOOK_NAME = "模拟小说";
+    static final String BOOK_URL = "https://example.com/book/fake";
+
+    /**
+     * @param latencyMs   每个请求的固定延迟
+     * @param jitterMs    在固定延迟上叠加 [0, jitterMs) 的随机延迟
+     * @param failureRate 返回 500 的概率
+     * @param gzip        客户端声明接受 gzip 时压缩响应（与 Legado 内置的 NanoHTTPD 行为一致）
+     */
+    record Options(int chapters, int chapterChars, long latencyMs, long jitterMs, double failureRate, boolean gzip) {
+
+        static Options defaults() {
+            return new Options(2000, 6000, 40, 20, 0.0, true);
+        }
+    }
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] chapterListBody;
+    private final String chapterBody;
+    private final Map<String, LongAdder> requests = new HashMap<>();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+
+    private FakeLegadoServer(Options options, int port) throws IOException {
+        this.options = options;
+        this.chapterListBody = NovelBenchmarkFixtures.chapterListJson(options.chapters()).getBytes(StandardCharsets.UTF_8);
+        this.chapterBody = NovelBenchmarkFixtures.chapter(options.chapterChars());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // 延迟靠 sleep 模拟，每个连接一个线程，避免排队把延迟叠加
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-legado");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+
+        route("/getBookshelf", exchange -> bookshelfJson().getBytes(StandardCharsets.UTF_8));
+        route("/getChapterList", exchange -> chapterListBody);
+        route("/getBookContent", this::content);
+        route("/saveBookProgress", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            return "{\"isSuccess\":true,\"errorMsg\":\"\"}".getBytes(StandardCharsets.UTF_8);
+        });
+    }
+
+    static FakeLegadoServer start(Options options) throws IOException {
+        return start(options, 0);
+    }
+
+    static FakeLegadoServer start(Options options, int port) throws IOException {
+        FakeLegadoServer fake = new FakeLegadoServer(options, port);
+        fake.server.start();
+        return fake;
+    }
+
+    String baseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    Options options() {
+        return options;
+    }
+
+    LegadoUtil.Book book() {
+        return new LegadoUtil.Book(BOOK_NAME, "作者", BOOK_URL, null, 0, 0, 0,
+                options.chapters(), "第" + options.chapters() + "章 净化领域节点");
+    }
+
+    // ================= 统计 =================
+
+    long requestCount(String path) {
+        LongAdder adder = requests.get(path);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    long totalRequests() {
+        return requests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long failureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * 实际写出的响应体字节（压缩后）
+     */
+    long bytesSent() {
+        return bytesSent.sum();
+    }
+
+    // ================= 接口实现 =================
+
+    @FunctionalInterface
+    private interface Handler {
+        byte[] handle(HttpExchange exchange) throws IOException;
+    }
+
+    private void route(String path, Handler handler) {
+        LongAdder counter = new LongAdder();
+        requests.put(path, counter);
+        server.createContext(path, exchange -> {
+            try (exchange) {
+                counter.increment();
+                simulateLatency();
+                if (options.failureRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.failureRate()) {
+                    failures.increment();
+                    exchange.sendResponseHeaders(500, -1);
+                    return;
+                }
+                byte[] body = handler.handle(exchange);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                if (options.gzip() && acceptsGzip(exchange)) {
+                    body = gzip(body);
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                bytesSent.add(body.length);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accept != null && accept.contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private void simulateLatency() {
+        long delay = options.latencyMs();
+        if (options.jitterMs() > 0) delay += ThreadLocalRandom.current().nextLong(options.jitterMs());
+        if (delay <= 0) return;
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] content(HttpExchange exchange) {
+        int index = parseIndex(exchange.getRequestURI().getRawQuery());
+        if (index < 0 || index >= options.chapters()) {
+            return "{\"isSuccess\":false,\"errorMsg\":\"index out of range\",\"data\":\"\"}".getBytes(StandardCharsets.UTF_8);
+        }
+        String text = "第" + (index + 1) + "章 净化领域节点\n" + chapterBody;
+        return NovelBenchmarkFixtures.contentJson(text).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 手机端进度停在第一章，进度时间取当前时间：总比本地日志中上次运行留下的进度新，每次打开都从第一章开始
+     */
+    private String bookshelfJson() {
+        return "{\"isSuccess\":true,\"data\":[{\"name\":\"" + BOOK_NAME + "\",\"author\":\"作者\",\"bookUrl\":\""
+                + BOOK_URL + "\",\"durChapterIndex\":0,\"durChapterPos\":0,\"durChapterTime\":" + System.currentTimeMillis() + ","
+                + "\"totalChapterNum\":" + options.chapters()
+                + ",\"latestChapterTitle\":\"第" + options.chapters() + "章 净化领域节点\"}]}";
+    }
+
+    private static int parseIndex(String query) {
+        if (query == null) return -1;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && "index".equals(pair.substring(0, eq))) {
+                try {
+                    return Integer.parseInt(URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 独立运行：参数依次为 端口 延迟ms 抖动ms 失败率 gzip，缺省 1122 40 20 0 true
+     */
+    public static void main(String[] args) throws IOException {
+        Options d = Options.defaults();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 1122;
+        Options options = new Options(d.chapters(), d.chapterChars(),
+                args.length > 1 ? Long.parseLong(args[1]) : d.latencyMs(),
+                args.length > 2 ? Long.parseLong(args[2]) : d.jitterMs(),
+                args.length > 3 ? Double.parseDouble(args[3]) : d.failureRate(),
+                args.length > 4 ? Boolean.parseBoolean(args[4]) : d.gzip());
+        FakeLegadoServer fake = start(options, port);
+        System.out.println("Fake Legado server listening on " + fake.baseUrl());
+    }
+}
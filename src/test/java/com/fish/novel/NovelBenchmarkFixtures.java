@@ -0,0 +1,99 @@
+package com.fish.novel;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 基准测试和回归测试共用的数据：固定字体的 FontMetrics，以及基于 {@link NovelData#CONTENT} 合成的大章节、大目录
+ */
+final class NovelBenchmarkFixtures {
+
+    static final int WIDTH = NovelInlayRenderer.VIEWPORT_WIDTH - NovelInlayRenderer.PADDING_LEFT;
+
+    private NovelBenchmarkFixtures() {}
+
+    /**
+     * 无头环境下通过 BufferedImage 取得 FontMetrics，与编辑器中的测量方式一致
+     */
+    static FontMetrics metrics() {
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        try {
+            return g.getFontMetrics(font());
+        } finally {
+            g.dispose();
+        }
+    }
+
+    static Font font() {
+        return new Font(Font.DIALOG, Font.PLAIN, 14);
+    }
+
+    /**
+     * 重复拼接示例正文直到不少于 chars 个字符
+     */
+    static String chapter(int chars) {
+        StringBuilder sb = new StringBuilder(chars + NovelData.CONTENT.length());
+        while (sb.length() < chars) sb.append(NovelData.CONTENT);
+        return sb.toString();
+    }
+
+    // 合成书籍中每隔 SEARCH_RARE_EVERY 章出现一次的词，示例正文中没有
+    static final String SEARCH_RARE = "青铜古剑";
+    static final int SEARCH_RARE_EVERY = 100;
+
+    /**
+     * 搜索用的合成章节：标题行加不少于 chars 个字符的示例正文，
+     * 第 0、SEARCH_RARE_EVERY、2 * SEARCH_RARE_EVERY ... 章在正文中间插入一句含 SEARCH_RARE 的话
+     */
+    static String searchChapter(int index, int chars) {
+        String body = chapter(chars);
+        String title = "第" + (index + 1) + "章 净化领域节点\n";
+        if (index % SEARCH_RARE_EVERY != 0) return title + body;
+        int middle = body.indexOf('\n', body.length() / 2) + 1;
+        return title + body.substring(0, middle) + "　　他从乱石中拔出一柄" + SEARCH_RARE + "。\n" + body.substring(middle);
+    }
+
+    static String contentJson(String content) {
+        return "{\"isSuccess\":true,\"errorMsg\":\"\",\"data\":" + quote(content) + "}";
+    }
+
+    static String chapterListJson(int chapters) {
+        StringBuilder sb = new StringBuilder(chapters * 160).append("{\"isSuccess\":true,\"data\":[");
+        for (int i = 0; i < chapters; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"url\":\"https://example.com/book/1/").append(i).append(".html\",")
+                    .append("\"title\":\"第").append(i + 1).append("章 净化领域节点\",")
+                    .append("\"isVolume\":false,\"index\":").append(i)
+                    .append(",\"bookUrl\":\"https://example.com/book/1\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    static String bookshelfJson(int books) {
+        StringBuilder sb = new StringBuilder(books * 256).append("{\"isSuccess\":true,\"data\":[");
+        for (int i = 0; i < books; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"name\":\"示例小说").append(i).append("\",\"author\":\"作者").append(i)
+                    .append("\",\"bookUrl\":\"https://example.com/book/").append(i)
+                    .append("\",\"coverUrl\":\"https://example.com/cover/").append(i).append(".jpg\",")
+                    .append("\"durChapterIndex\":").append(i).append(",\"durChapterPos\":0,")
+                    .append("\"durChapterTime\":1700000000000,\"totalChapterNum\":3000,")
+                    .append("\"latestChapterTitle\":\"第3000章\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.fish.novel;
+
+import junit.framework.TestCase;
+
+/**
+ * 显示偏移与原文偏移的往返换算：保存进度 (toRaw) 后再恢复 (toDisplay) 必须回到同一个字符，
+ * 否则每次重启或与手机端同步都会让阅读位置漂移
+ */
+public class NovelChapterTextTest extends TestCase {
+
+    private static final String RAW = NovelData.CONTENT;
+    private final NovelChapterText text = NovelChapterText.of(RAW);
+
+    /**
+     * 每个正文字符：显示 -> 原文 -> 显示回到原位，且原文中是同一个字符
+     */
+    public void testEveryContentCharacterRoundTrips() {
+        String display = text.display();
+        int checked = 0;
+        for (int p = 0; p < display.length(); p++) {
+            if (display.charAt(p) == NovelChapterText.PARAGRAPH_MARK) continue;
+            int raw = text.toRaw(p);
+            assertEquals("显示偏移 " + p + " 对应的原文字符", display.charAt(p), RAW.charAt(raw));
+            assertEquals("显示偏移 " + p + " 往返", p, text.toDisplay(raw));
+            assertEquals("原文偏移 " + raw + " 往返", raw, text.toRaw(text.toDisplay(raw)));
+            checked++;
+        }
+        assertTrue("样本中没有正文", checked > 100);
+    }
+
+    /**
+     * 段落标记本身不在原文中：换算到上一段的结尾，恢复时落到下一段的开头
+     */
+    public void testPositionOnParagraphMark() {
+        String display = text.display();
+        int mark = display.indexOf(NovelChapterText.PARAGRAPH_MARK);
+        assertTrue("样本应有多个段落", mark > 0);
+
+        int raw = text.toRaw(mark);
+        assertEquals("应换算到上一段最后一个字符之后", text.toRaw(mark - 1) + 1, raw);
+        assertEquals(mark + 1, text.toDisplay(raw));
+    }
+
+    /**
+     * 段首的全角缩进 "　　" 不显示，原文偏移落在缩进中时定位到该段第一个字
+     */
+    public void testLeadingIndentMapsToParagraphStart() {
+        int indent = RAW.indexOf("\n　　") + 1;
+        int first = indent + 2;
+        int expected = text.toDisplay(first);
+        assertEquals(RAW.charAt(first), text.display().charAt(expected));
+        assertEquals(expected, text.toDisplay(indent));
+        assertEquals(expected, text.toDisplay(indent + 1));
+
+        // 第一行也有缩进，开头的缩进对应显示偏移 0
+        assertEquals(0, text.toDisplay(0));
+        assertEquals(text.toRaw(0), RAW.indexOf(text.display().charAt(0)));
+    }
+
+    /**
+     * 段落之间的空行不显示，原文偏移落在空行中时定位到下一段第一个字
+     */
+    public void testBlankLineMapsToNextParagraph() {
+        int blank = RAW.indexOf("\n\n") + 1;
+        assertTrue("样本应有空行", blank > 0);
+        int next = blank;
+        while (Character.isWhitespace(RAW.charAt(next))) next++;
+
+        int expected = text.toDisplay(next);
+        assertEquals(expected, text.toDisplay(blank));
+        assertEquals(NovelChapterText.PARAGRAPH_MARK, text.display().charAt(expected - 1));
+    }
+
+    /**
+     * 章末：显示末尾之后的位置对应最后一个字之后，超出原文的偏移也停在显示末尾
+     */
+    public void testTrailingPosition() {
+        String display = text.display();
+        int end = display.length();
+        int lastRaw = text.toRaw(end - 1);
+
+        assertEquals(lastRaw + 1, text.toRaw(end));
+        assertEquals(lastRaw + 1, text.toRaw(end + 100));
+        assertEquals(end, text.toDisplay(lastRaw + 1));
+        assertEquals(end, text.toDisplay(RAW.length()));
+    }
+
+    public void testEmptyText() {
+        NovelChapterText empty = NovelChapterText.of("\n　　\n\n");
+        assertEquals(0, empty.length());
+        assertEquals(0, empty.toRaw(5));
+        assertEquals(0, empty.toDisplay(3));
+    }
+}
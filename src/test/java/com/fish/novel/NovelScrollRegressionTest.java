@@ -0,0 +1,152 @@
+package com.fish.novel;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端回归：在测试框架的应用容器中，让真实的 {@link NovelGlobalService} 连接 {@link FakeLegadoServer}，
+ * 通过 setIndex 按阅读滚动序列翻章。预读窗口、复用进行中的预读、代次取消、窗口外淘汰和执行通道都走服务本身的代码。
+ * <p>
+ * 切章耗时和请求数超过阈值即失败，随 ./gradlew test 运行；耗时分位数和请求数同时打印到测试输出，便于对比
+ */
+public class NovelScrollRegressionTest extends BasePlatformTestCase {
+
+    private static final long LATENCY_MS = 30;
+    private static final long JITTER_MS = 10;
+    // 每章的阅读时间，足够让预读在翻章前完成
+    private static final long READ_MS = 150;
+    private static final int PREFETCH_AHEAD = 2;
+    private static final int PREFETCH_BEHIND = 1;
+    private static final int LOAD_TIMEOUT_SECONDS = 5;
+    // 预读命中时只在内存中切换，p90 必须低于一次请求的固定延迟
+    private static final long MAX_P90_SWITCH_MS = LATENCY_MS;
+
+    private FakeLegadoServer server;
+    private NovelGlobalService service;
+
+    private String savedBookName;
+    private int savedAhead;
+    private int savedBehind;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = FakeLegadoServer.start(new FakeLegadoServer.Options(200, 6000, LATENCY_MS, JITTER_MS, 0.0, true));
+        System.setProperty("novel.legado.url", server.baseUrl());
+
+        NovelConfig config = NovelConfig.getInstance();
+        savedBookName = config.bookName;
+        savedAhead = config.prefetchAhead;
+        savedBehind = config.prefetchBehind;
+        config.bookName = FakeLegadoServer.BOOK_NAME;
+        config.prefetchAhead = PREFETCH_AHEAD;
+        config.prefetchBehind = PREFETCH_BEHIND;
+        // 上次运行留下的磁盘缓存会让请求数偏低
+        NovelChapterStore.getInstance().removeBook(FakeLegadoServer.BOOK_URL);
+
+        service = NovelGlobalService.getInstance();
+        service.reload();
+        awaitChapter(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            NovelConfig config = NovelConfig.getInstance();
+            config.bookName = savedBookName;
+            config.prefetchAhead = savedAhead;
+            config.prefetchBehind = savedBehind;
+            System.clearProperty("novel.legado.url");
+            if (server != null) server.close();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    /**
+     * 正常阅读：预读应完全覆盖网络延迟，每章只请求一次，窗口外的章节被淘汰
+     */
+    public void testSequentialReadingHidesLatency() throws Exception {
+        int steps = 30;
+        long before = server.requestCount("/getBookContent");
+        long[] switchNanos = new long[steps];
+
+        for (int i = 0; i < steps; i++) {
+            Thread.sleep(READ_MS);
+            NovelReaderState s = service.getState();
+            long start = System.nanoTime();
+            service.setIndex(s.content().length()); // 滚过章末
+            awaitChapter(s.chapterIndex() + 1);
+            switchNanos[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(switchNanos);
+        long p90 = TimeUnit.NANOSECONDS.toMillis(percentile(switchNanos, 90));
+        long requests = server.requestCount("/getBookContent") - before;
+        int cached = service.getCachedChapterCount();
+        String summary = "翻 " + steps + " 章：切章耗时 p50=" + micros(percentile(switchNanos, 50))
+                + "us p90=" + micros(percentile(switchNanos, 90)) + "us p99=" + micros(percentile(switchNanos, 99))
+                + "us max=" + micros(switchNanos[steps - 1]) + "us，正文请求 " + requests + " 次，缓存 " + cached + " 章";
+        System.out.println(summary);
+
+        assertTrue("p90 切章耗时 " + p90 + "ms，预读没有覆盖网络延迟；" + summary, p90 < MAX_P90_SWITCH_MS);
+        // 读过的章节加上窗口前端的预读，每章只请求一次
+        assertTrue("正文请求过多；" + summary, requests <= steps + PREFETCH_AHEAD);
+        assertTrue("预加载窗口外的章节没有淘汰；" + summary, cached <= PREFETCH_AHEAD + PREFETCH_BEHIND + 1);
+    }
+
+    /**
+     * 快速连续翻章：被取代的加载不能覆盖最终章节，也不能为每次翻章留下成串的请求
+     */
+    public void testRapidScrollingShowsOnlyLatestChapter() throws Exception {
+        int jumps = 12;
+        long before = server.requestCount("/getBookContent");
+
+        for (int i = 0; i < jumps; i++) {
+            // 加载中 content 只是状态提示，传入足够大的位置保证每次都翻到下一章
+            service.setIndex(Integer.MAX_VALUE);
+        }
+        awaitChapter(jumps);
+        // 等被取代的请求都返回，确认迟到的结果没有覆盖当前章节
+        Thread.sleep(3 * (LATENCY_MS + JITTER_MS));
+
+        NovelReaderState s = service.getState();
+        assertEquals(jumps, s.chapterIndex());
+        assertTrue("显示的不是第 " + (jumps + 1) + " 章的正文", s.hasText()
+                && s.content().startsWith("第" + (jumps + 1) + "章"));
+
+        long requests = server.requestCount("/getBookContent") - before;
+        long limit = jumps + 2L * (PREFETCH_AHEAD + PREFETCH_BEHIND);
+        System.out.println("连续翻 " + jumps + " 章：正文请求 " + requests + " 次，上限 " + limit);
+        assertTrue("连续翻 " + jumps + " 章发出了 " + requests + " 次正文请求，上限 " + limit, requests <= limit);
+    }
+
+    /**
+     * 等到第 chapterIndex 章的正文显示出来，超时或加载出错则失败。
+     * 等待期间派发 EDT 事件，服务的 UI 通知照常送达；条件先于派发检查，预读命中时不会多等一轮
+     */
+    private void awaitChapter(int chapterIndex) {
+        PlatformTestUtil.waitWithEventsDispatching(
+                () -> "等待第 " + (chapterIndex + 1) + " 章超时，当前: " + service.getState().content(),
+                () -> {
+                    NovelReaderState s = service.getState();
+                    if (s.error()) fail("加载第 " + (chapterIndex + 1) + " 章失败: " + s.content());
+                    return s.chapterIndex() == chapterIndex && s.hasText();
+                },
+                LOAD_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * 已排序样本的第 p 百分位，取下标 n * p / 100（30 个样本时 p90 为第 28 个，p99 为最大值）
+     */
+    private static long percentile(long[] sorted, int p) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,207 @@
+package com.fish.novel;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全文索引：差值变长编码的倒排表、乱序到达时的合并、候选章节求交、哈希冲突的过滤，
+ * 以及在 3000 章的合成书籍上按 {@link NovelGlobalService#search} 的方式查询
+ */
+public class NovelSearchIndexTest extends TestCase {
+
+    private static final int BOOK_CHAPTERS = 3000;
+    private static final int BOOK_CHAPTER_CHARS = 2000;
+
+    /**
+     * 章节号差值跨越 1 到 4 字节的 varint 边界，解码后仍是原来的章节集合
+     */
+    public void testPostingsRoundTripAcrossVarIntWidths() {
+        int[] chapters = {0, 1, 127, 128, 255, 16383, 16384, 16512, 2_097_151, 2_097_152};
+        NovelSearchIndex index = new NovelSearchIndex();
+        for (int chapter : chapters) index.add(chapter, text("他拔出一柄青铜古剑。"));
+        index.add(5, text("净化任务"));
+        index.add(200_000, text("净化任务"));
+
+        assertArrayEquals(chapters, index.candidates("青铜古剑"));
+        assertArrayEquals(new int[]{5, 200_000}, index.candidates("净化"));
+        assertEquals(chapters.length + 2, index.chapterCount());
+    }
+
+    /**
+     * 倒序加入：除第一章外都先进入 extras，多次合并重编码后仍完整、升序、无重复
+     */
+    public void testOutOfOrderChaptersAreMerged() {
+        NovelSearchIndex index = new NovelSearchIndex();
+        List<Integer> everyThird = new ArrayList<>();
+        for (int chapter = 199; chapter >= 0; chapter--) {
+            boolean third = chapter % 3 == 0;
+            index.add(chapter, text(third ? "青铜，古剑" : "青铜"));
+            if (third) everyThird.add(0, chapter);
+        }
+        // 合并之后再顺序追加、再乱序插入
+        index.add(500, text("青铜"));
+        index.add(250, text("青铜"));
+        // 已索引的章节不会重复加入
+        index.add(7, text("青铜"));
+
+        int[] expected = new int[202];
+        for (int i = 0; i < 200; i++) expected[i] = i;
+        expected[200] = 250;
+        expected[201] = 500;
+        assertArrayEquals(expected, index.candidates("青铜"));
+        assertArrayEquals(everyThird.stream().mapToInt(Integer::intValue).toArray(), index.candidates("古剑"));
+        assertEquals(202, index.chapterCount());
+    }
+
+    /**
+     * 候选章节必须含有 query 的全部单字和相邻二元组；空白分隔的片段之间不要求相邻
+     */
+    public void testCandidatesIntersectAllKeys() {
+        NovelSearchIndex index = new NovelSearchIndex();
+        index.add(0, text("青铜"));
+        index.add(1, text("古剑"));
+        index.add(2, text("青铜古剑"));
+        index.add(3, text("古剑，青铜"));
+        index.add(4, text("青铜剑"));
+
+        assertArrayEquals(new int[]{2}, index.candidates("青铜古剑"));
+        assertArrayEquals(new int[]{2, 3}, index.candidates("青铜 古剑"));
+        assertArrayEquals(new int[]{4}, index.candidates("青铜剑"));
+        assertArrayEquals(new int[]{0, 2, 3, 4}, index.candidates("铜"));
+        assertEquals(0, index.candidates("玄冥").length);
+        assertEquals(0, index.candidates("，。").length);
+    }
+
+    public void testCaseInsensitive() {
+        NovelSearchIndex index = new NovelSearchIndex();
+        NovelChapterText bronze = text("　　A Bronze Sword lay in the mud.");
+        index.add(0, bronze);
+        index.add(1, text("　　An iron sword."));
+
+        assertArrayEquals(new int[]{0}, index.candidates("BRONZE"));
+        List<NovelSearchIndex.Hit> hits = new ArrayList<>();
+        NovelSearchIndex.findAll(0, "第1章", bronze, "bronze sword", hits, 10);
+        assertEquals(1, hits.size());
+        assertEquals("Bronze Sword", bronze.display().substring(hits.get(0).offset(), hits.get(0).offset() + 12));
+    }
+
+    /**
+     * 只有 2 个桶时几乎每章都是候选：原文确认 (mayContain) 在规范化之前滤掉假候选，结果只含真实命中
+     */
+    public void testHashCollisionsAreFilteredBeforeNormalizing() {
+        NovelSearchIndex index = new NovelSearchIndex(1);
+        String[] raw = new String[10];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = i == 7 ? NovelBenchmarkFixtures.searchChapter(0, 500) : NovelBenchmarkFixtures.searchChapter(1, 500);
+            index.add(i, NovelChapterText.of(raw[i]));
+        }
+
+        int[] candidates = index.candidates(NovelBenchmarkFixtures.SEARCH_RARE);
+        assertTrue("2 个桶时应有假候选: " + Arrays.toString(candidates), candidates.length > 1);
+        assertTrue(Arrays.binarySearch(candidates, 7) >= 0);
+
+        Book book = new Book(raw, NovelBenchmarkFixtures.SEARCH_RARE);
+        List<NovelSearchIndex.Hit> hits = index.search(NovelBenchmarkFixtures.SEARCH_RARE, 10, book);
+        assertEquals(1, hits.size());
+        assertEquals(7, hits.get(0).chapterIndex());
+        assertEquals(candidates.length, book.reads);
+        assertEquals(1, book.normalized);
+    }
+
+    /**
+     * 命中的原文偏移可直接作为阅读进度，上下文含命中词
+     */
+    public void testHitPointsAtRawOffset() {
+        String raw = NovelBenchmarkFixtures.searchChapter(0, 2000);
+        List<NovelSearchIndex.Hit> hits = new ArrayList<>();
+        NovelSearchIndex.findAll(3, "第4章", NovelChapterText.of(raw), NovelBenchmarkFixtures.SEARCH_RARE, hits, 10);
+
+        assertEquals(1, hits.size());
+        NovelSearchIndex.Hit hit = hits.get(0);
+        assertEquals(3, hit.chapterIndex());
+        assertEquals("第4章", hit.title());
+        assertTrue(raw.startsWith(NovelBenchmarkFixtures.SEARCH_RARE, hit.rawOffset()));
+        assertTrue(hit.context(), hit.context().contains(NovelBenchmarkFixtures.SEARCH_RARE));
+    }
+
+    /**
+     * 3000 章的书：稀有词只读取候选章节，不逐章扫描；常见词读满 limit 即停止。
+     * 查询耗时打印到测试输出，JMH 的 NovelSearchBenchmark 给出同一路径的稳定数据
+     */
+    public void testThreeThousandChapterBook() {
+        String[] raw = new String[BOOK_CHAPTERS];
+        NovelSearchIndex index = new NovelSearchIndex();
+        long started = System.nanoTime();
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = NovelBenchmarkFixtures.searchChapter(i, BOOK_CHAPTER_CHARS);
+            index.add(i, NovelChapterText.of(raw[i]));
+        }
+        long buildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        String rare = NovelBenchmarkFixtures.SEARCH_RARE;
+        Book book = new Book(raw, rare);
+        started = System.nanoTime();
+        List<NovelSearchIndex.Hit> hits = index.search(rare, 100, book);
+        long rareUs = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+
+        int expected = BOOK_CHAPTERS / NovelBenchmarkFixtures.SEARCH_RARE_EVERY;
+        assertEquals(expected, hits.size());
+        for (int i = 0; i < expected; i++) {
+            NovelSearchIndex.Hit hit = hits.get(i);
+            assertEquals(i * NovelBenchmarkFixtures.SEARCH_RARE_EVERY, hit.chapterIndex());
+            assertTrue(raw[hit.chapterIndex()].startsWith(rare, hit.rawOffset()));
+        }
+        assertTrue("稀有词读取了 " + book.reads + " 章，索引没有缩小范围", book.reads < BOOK_CHAPTERS / 10);
+        assertEquals(expected, book.normalized);
+
+        Book common = new Book(raw, "净化");
+        started = System.nanoTime();
+        hits = index.search("净化", 100, common);
+        long commonUs = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        assertEquals(100, hits.size());
+        assertTrue("常见词读满 limit 后应停止，读取了 " + common.reads + " 章", common.reads < 100);
+
+        System.out.println(BOOK_CHAPTERS + " 章：建立索引 " + buildMs + "ms，索引约 " + index.estimateBytes() / 1024
+                + "KB；稀有词 " + rareUs + "us（读取 " + book.reads + " 章），常见词 " + commonUs + "us（读取 " + common.reads + " 章）");
+    }
+
+    private static NovelChapterText text(String raw) {
+        return NovelChapterText.of(raw);
+    }
+
+    private static void assertArrayEquals(int[] expected, int[] actual) {
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+    }
+
+    /**
+     * 与 NovelGlobalService 中的磁盘路径相同：先在原文中确认，再规范化
+     */
+    private static final class Book implements NovelSearchIndex.Chapters {
+        private final String[] raw;
+        private final String query;
+        int reads;
+        int normalized;
+
+        Book(String[] raw, String query) {
+            this.raw = raw;
+            this.query = query;
+        }
+
+        @Override
+        public String title(int chapterIndex) {
+            return "第" + (chapterIndex + 1) + "章";
+        }
+
+        @Override
+        public NovelChapterText text(int chapterIndex) {
+            reads++;
+            if (!NovelSearchIndex.mayContain(raw[chapterIndex], query)) return null;
+            normalized++;
+            return NovelChapterText.of(raw[chapterIndex]);
+        }
+    }
+}